@@ -15,6 +15,11 @@ public interface ChappieConfig {
      */
     Augmenting augmenting();
 
+    /**
+     * Batch workspace actions.
+     */
+    Batch batch();
+
     @ConfigGroup
     interface Augmenting {
 
@@ -25,4 +30,20 @@ public interface ChappieConfig {
         boolean enabled();
 
     }
+
+    @ConfigGroup
+    interface Batch {
+
+        /**
+         * The number of files a batch sends to the assistant at the same time.
+         */
+        @WithDefault("4")
+        int concurrency();
+
+        /**
+         * The number of requests a batch starts per minute at most, to stay within the rate limits of the provider.
+         */
+        @WithDefault("30")
+        int requestsPerMinute();
+    }
 }
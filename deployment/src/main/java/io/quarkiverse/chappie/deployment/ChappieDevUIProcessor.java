@@ -54,6 +54,10 @@ class ChappieDevUIProcessor {
                 .title("Chat")
                 .componentLink("qwc-chappie-chat.js"));
 
+        chatPage.addPage(Page.assistantPageBuilder()
+                .title("Batch")
+                .componentLink("qwc-chappie-batch.js"));
+
         menuPageProducer.produce(chatPage);
     }
 
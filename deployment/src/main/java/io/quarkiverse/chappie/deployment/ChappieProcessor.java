@@ -1,16 +1,24 @@
 package io.quarkiverse.chappie.deployment;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.SubmissionPublisher;
 
 import org.jboss.logging.Logger;
@@ -20,6 +28,9 @@ import org.yaml.snakeyaml.Yaml;
 
 import io.quarkiverse.chappie.runtime.dev.ChappieAssistant;
 import io.quarkiverse.chappie.runtime.dev.ChappieRecorder;
+import io.quarkiverse.chappie.runtime.dev.ChappieServerManager;
+import io.quarkiverse.chappie.runtime.dev.ChatPrompts;
+import io.quarkiverse.chappie.runtime.dev.JsonObjectCreator;
 import io.quarkus.arc.deployment.BeanContainerBuildItem;
 import io.quarkus.assistant.deployment.spi.AssistantConsoleBuildItem;
 import io.quarkus.assistant.runtime.dev.Assistant;
@@ -53,8 +64,12 @@ public class ChappieProcessor {
     private static final Logger LOG = Logger.getLogger(ChappieProcessor.class);
     private static final String FEATURE = "assistant";
     static volatile ConsoleStateManager.ConsoleContext chappieConsoleContext;
+    // The request the console is waiting for
+    private static volatile CompletableFuture<?> consoleRequest;
 
     static volatile ChappieAssistant assistant = new ChappieAssistant();
+    // The server jar does not change while we run, so only hash it once
+    private static volatile String serverChecksum;
 
     @Record(ExecutionTime.RUNTIME_INIT)
     @BuildStep
@@ -62,8 +77,10 @@ public class ChappieProcessor {
             ChappieRecorder recorder,
             BeanContainerBuildItem beanContainer,
             ExtensionVersionBuildItem extensionVersionBuildItem,
+            ServerChecksumBuildItem serverChecksumBuildItem,
             CurateOutcomeBuildItem curateOutcomeBuildItem,
             NonApplicationRootPathBuildItem nonApplicationRootPathBuildItem,
+            List<ResponseTypeBuildItem> responseTypeBuildItems,
             List<DevServicesResultBuildItem> devServices) {
         // Note: devServices parameter ensures DevServices containers are started before this recorder runs.
         // This fixes a race condition where the RAG database config might not be available yet.
@@ -72,22 +89,43 @@ public class ChappieProcessor {
 
         String quarkusVersion = resolveQuarkusVersion(curateOutcomeBuildItem);
 
+        // Render the response prompts of the built-in actions now, rather than on their first request
+        List<Class<?>> responseTypes = new ArrayList<>();
+        responseTypes.add(ChatPrompts.ChatResponse.class);
+        responseTypes.add(ChatPrompts.ChatResponseWithMCP.class);
+        for (ResponseTypeBuildItem responseTypeBuildItem : responseTypeBuildItems) {
+            responseTypes.add(responseTypeBuildItem.getResponseType());
+        }
+        Map<String, String> responsePrompts = JsonObjectCreator.precomputeResponsePrompts(responseTypes);
+
         RuntimeValue<SubmissionPublisher<String>> chappieLog = recorder.createChappieServerManager(beanContainer.getValue(),
                 assistant,
-                extensionVersionBuildItem.getVersion(), quarkusVersion, devmcpPath);
+                extensionVersionBuildItem.getVersion(), serverChecksumBuildItem.getChecksum(), quarkusVersion, devmcpPath,
+                responsePrompts);
 
         DevConsoleManager.register("chappie.setBaseUrl", (t) -> {
             String baseUrl = null;
             if (t.containsKey("baseUrl")) {
                 baseUrl = t.get("baseUrl");
             }
-            assistant.setBaseUrl(baseUrl);
+            assistant.configure(t);
+            String state = t.get("state");
+            if (ChappieServerManager.STATE_STARTING.equals(state)) {
+                assistant.starting(baseUrl);
+            } else if (ChappieServerManager.STATE_FAILED.equals(state)) {
+                assistant.markFailed(new IllegalStateException(t.get("message")));
+            } else {
+                assistant.setBaseUrl(baseUrl);
+            }
             return true;
         });
 
-        DevConsoleManager.register("chappie.getArtifact", (t) -> {
+        // Resolving the artifact of a class means going through the application model, so remember the answers
+        // for as long as this model is used. Callers without a known artifact are not remembered.
+        Map<String, String> artifacts = new ConcurrentHashMap<>();
+        DevConsoleManager.register("chappie.getArtifact", (t) -> artifacts.computeIfAbsent(t.get("caller"), (caller) -> {
 
-            Class callerClass = toClass(t.get("caller"));
+            Class callerClass = toClass(caller);
 
             if (callerClass != null) {
                 Map.Entry<String, String> groupIdAndArtifactId = ArtifactInfoUtil.groupIdAndArtifactId(callerClass,
@@ -97,7 +135,7 @@ public class ChappieProcessor {
             } else {
                 return null;
             }
-        });
+        }));
 
         DevConsoleManager.setGlobal(DevConsoleManager.DEV_MANAGER_GLOBALS_ASSISTANT, assistant);
 
@@ -141,6 +179,30 @@ public class ChappieProcessor {
         }
     }
 
+    @BuildStep
+    ServerChecksumBuildItem findServerChecksum() {
+        if (serverChecksum == null) {
+            try {
+                ClassPathUtils.consumeAsPaths(SERVER_JAR, (Path p) -> {
+                    try (InputStream in = Files.newInputStream(p)) {
+                        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                        byte[] buffer = new byte[64 * 1024];
+                        int read;
+                        while ((read = in.read(buffer)) != -1) {
+                            digest.update(buffer, 0, read);
+                        }
+                        serverChecksum = HexFormat.of().formatHex(digest.digest());
+                    } catch (IOException | NoSuchAlgorithmException e) {
+                        LOG.error("Error getting the checksum of the Quarkus Assistant Server", e);
+                    }
+                });
+            } catch (IOException ex) {
+                LOG.error("Error getting the checksum of the Quarkus Assistant Server", ex);
+            }
+        }
+        return new ServerChecksumBuildItem(serverChecksum);
+    }
+
     @Consume(ConsoleInstalledBuildItem.class)
     @BuildStep
     FeatureBuildItem setupConsole(List<AssistantConsoleBuildItem> assistantConsoleBuildItems) {
@@ -170,6 +232,8 @@ public class ChappieProcessor {
                             new Runnable() {
                                 @Override
                                 public void run() {
+                                    // Asking again replaces the request that is still running
+                                    cancelConsoleRequest();
                                     System.out.println("""
                                             =========================================
                                             Talking to Quarkus Assistant, please wait""");
@@ -198,6 +262,14 @@ public class ChappieProcessor {
                 }
 
             }
+            if (consoleCommands.stream().noneMatch(c -> c.getKey() == CANCEL_KEY)) {
+                consoleCommands.add(new ConsoleCommand(CANCEL_KEY, "Cancel the running request", null,
+                        () -> {
+                            if (cancelConsoleRequest()) {
+                                System.out.println("\n\nCancelled the request to Quarkus Assistant");
+                            }
+                        }));
+            }
             chappieConsoleContext.reset(consoleCommands.toArray(new ConsoleCommand[] {}));
         }
 
@@ -302,7 +374,20 @@ public class ChappieProcessor {
                 .withPassword("postgres"));
     }
 
+    private static boolean cancelConsoleRequest() {
+        CompletableFuture<?> running = consoleRequest;
+        consoleRequest = null;
+        return running != null && running.cancel(true);
+    }
+
     private void printResponse(CompletionStage response, Vertx vertx, long timer) {
+        CompletableFuture<?> request = response.toCompletableFuture();
+        consoleRequest = request;
+        request.whenComplete((output, failure) -> {
+            if (request.isCancelled()) {
+                vertx.cancelTimer(timer);
+            }
+        });
         response.thenAccept((output) -> {
             vertx.cancelTimer(timer);
             if (Map.class.isAssignableFrom(output.getClass())) {
@@ -314,6 +399,12 @@ public class ChappieProcessor {
             }
         }).exceptionally(ex -> {
             vertx.cancelTimer(timer);
+            Throwable cause = ex instanceof CompletionException && ((Throwable) ex).getCause() != null
+                    ? ((Throwable) ex).getCause()
+                    : (Throwable) ex;
+            if (cause instanceof CancellationException) {
+                return null;
+            }
             System.err.println("Failed to get response from Quarkus Assistant [ " + ((Throwable) ex).getMessage() + "]");
             return null;
         });
@@ -340,11 +431,13 @@ public class ChappieProcessor {
         return artifactId;
     }
 
+    private static final char CANCEL_KEY = 'x';
     private static final String DASH_DEV = "-dev";
     private static final String DASH_DEPLOYMENT = "-deployment";
     private static final String DASH_DEPLOYMENT_SPI = "-deployment-spi";
     private static final String DASH_SPI = "-spi";
     private static final String YAML_FILE = "/META-INF/quarkus-extension.yaml";
+    private static final String SERVER_JAR = "/bin/chappie-server.jar";
     private static final String GROUP_ID = "io.quarkiverse.chappie";
     private static final String ARTIFACT_ID = "quarkus-chappie";
     private static final String GAV_START = GROUP_ID + ":" + ARTIFACT_ID + "::jar:";
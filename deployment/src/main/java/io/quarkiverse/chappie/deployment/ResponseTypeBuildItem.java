@@ -0,0 +1,18 @@
+package io.quarkiverse.chappie.deployment;
+
+import io.quarkus.builder.item.MultiBuildItem;
+
+/**
+ * A response type used by a built-in assistant action, so its response prompt can be rendered at build time
+ */
+final public class ResponseTypeBuildItem extends MultiBuildItem {
+    private final Class<?> responseType;
+
+    public ResponseTypeBuildItem(Class<?> responseType) {
+        this.responseType = responseType;
+    }
+
+    public Class<?> getResponseType() {
+        return responseType;
+    }
+}
@@ -0,0 +1,18 @@
+package io.quarkiverse.chappie.deployment;
+
+import io.quarkus.builder.item.SimpleBuildItem;
+
+/**
+ * The SHA-256 of the chappie server jar that comes with this extension
+ */
+final public class ServerChecksumBuildItem extends SimpleBuildItem {
+    private final String checksum;
+
+    public ServerChecksumBuildItem(String checksum) {
+        this.checksum = checksum;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+}
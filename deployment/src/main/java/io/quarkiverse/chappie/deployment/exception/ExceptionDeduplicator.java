@@ -0,0 +1,130 @@
+package io.quarkiverse.chappie.deployment.exception;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Recognizes an exception that was thrown before, so an application that throws the same exception over and over
+ * does not flood the Dev UI. Exceptions are the same when they have the same fingerprint, that is the type and the top
+ * frames of the stack. An exception is a repeat when the last one with its fingerprint was within the window, so a
+ * burst counts as one, however long it lasts.
+ *
+ * The count of a repeat is published at most once per interval. A count that was not published yet is flushed once
+ * the interval is over, so the last count of a burst is not lost.
+ */
+final class ExceptionDeduplicator {
+
+    /**
+     * @param occurrences how often the exception was thrown in this burst, shared by all occurrences
+     * @param latest the exception is to be shown as the latest one: it is the first of its burst, or another exception
+     *        was shown since
+     * @param publish the exception is to be shown, or its count was not published for a while
+     */
+    record Occurrence(String fingerprint, AtomicLong occurrences, boolean latest, boolean publish) {
+    }
+
+    private static final class Seen {
+        private final AtomicLong occurrences = new AtomicLong();
+        private long lastSeen;
+        private long lastPublished;
+        private long publishedOccurrences;
+        private boolean flushScheduled;
+    }
+
+    private final int frames;
+    private final long window;
+    private final long publishInterval;
+    private final Consumer<Occurrence> flush;
+    // Least recently seen first
+    private final Map<String, Seen> seen = new LinkedHashMap<>(16, 0.75f, true);
+    // The fingerprint of the exception shown as the latest one
+    private String latest;
+
+    /**
+     * @param flush publishes a count that was held back
+     */
+    ExceptionDeduplicator(int frames, Duration window, Duration publishInterval, Consumer<Occurrence> flush) {
+        this.frames = frames;
+        this.window = window.toNanos();
+        this.publishInterval = publishInterval.toNanos();
+        this.flush = flush;
+    }
+
+    /**
+     * Count an occurrence of the exception
+     */
+    synchronized Occurrence record(Throwable throwable) {
+        long now = System.nanoTime();
+        evict(now);
+        String fingerprint = fingerprint(throwable, frames);
+        Seen s = seen.get(fingerprint);
+        if (s == null || now - s.lastSeen > window) {
+            s = new Seen();
+            seen.put(fingerprint, s);
+        }
+        s.lastSeen = now;
+        long occurrences = s.occurrences.incrementAndGet();
+        boolean isLatest = occurrences == 1 || !fingerprint.equals(latest);
+        boolean publish = isLatest || now - s.lastPublished >= publishInterval;
+        if (publish) {
+            s.lastPublished = now;
+            s.publishedOccurrences = occurrences;
+            latest = fingerprint;
+        } else if (!s.flushScheduled) {
+            s.flushScheduled = true;
+            long delay = publishInterval - (now - s.lastPublished);
+            Seen pending = s;
+            CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(() -> flush(fingerprint, pending));
+        }
+        return new Occurrence(fingerprint, s.occurrences, isLatest, publish);
+    }
+
+    private void flush(String fingerprint, Seen s) {
+        Occurrence occurrence;
+        synchronized (this) {
+            s.flushScheduled = false;
+            long occurrences = s.occurrences.get();
+            if (s.publishedOccurrences == occurrences) {
+                return;
+            }
+            s.lastPublished = System.nanoTime();
+            s.publishedOccurrences = occurrences;
+            occurrence = new Occurrence(fingerprint, s.occurrences, false, true);
+        }
+        flush.accept(occurrence);
+    }
+
+    private void evict(long now) {
+        Iterator<Seen> it = seen.values().iterator();
+        while (it.hasNext()) {
+            Seen eldest = it.next();
+            if (seen.size() <= MAX_FINGERPRINTS && now - eldest.lastSeen <= window) {
+                return;
+            }
+            it.remove();
+        }
+    }
+
+    /**
+     * The type of the exception and where it was thrown. The message is left out, as it often contains values that
+     * differ every time.
+     */
+    static String fingerprint(Throwable throwable, int frames) {
+        StringBuilder fingerprint = new StringBuilder(throwable.getClass().getName());
+        StackTraceElement[] stackTrace = throwable.getStackTrace();
+        for (int i = 0; i < Math.min(frames, stackTrace.length); i++) {
+            StackTraceElement frame = stackTrace[i];
+            fingerprint.append('\n').append(frame.getClassName()).append('.').append(frame.getMethodName())
+                    .append(':').append(frame.getLineNumber());
+        }
+        return fingerprint.toString();
+    }
+
+    private static final int MAX_FINGERPRINTS = 256;
+}
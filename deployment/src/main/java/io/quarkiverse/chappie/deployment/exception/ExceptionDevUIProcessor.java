@@ -5,12 +5,19 @@ import java.io.StringWriter;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import io.quarkiverse.chappie.deployment.ContentIO;
+import io.quarkiverse.chappie.deployment.ResponseTypeBuildItem;
+import io.quarkiverse.chappie.runtime.dev.ChappieAssistant;
+import io.quarkiverse.chappie.runtime.dev.ChappieContextPacker;
 import io.quarkus.assistant.deployment.spi.AssistantConsoleBuildItem;
 import io.quarkus.assistant.deployment.spi.AssistantPageBuildItem;
 import io.quarkus.assistant.runtime.dev.Assistant;
@@ -33,6 +40,11 @@ import io.smallrye.mutiny.operators.multi.processors.BroadcastProcessor;
 @BuildSteps(onlyIf = IsLocalDevelopment.class)
 class ExceptionDevUIProcessor {
     private static final String EXCEPTION_TITLE = "Exception help";
+    private static final int FINGERPRINT_FRAMES = 5;
+    private static final Duration DEDUPLICATION_WINDOW = Duration.ofSeconds(30);
+    private static final Duration OCCURRENCES_UPDATE_INTERVAL = Duration.ofSeconds(1);
+    private static final String SOURCE_NOT_RESTORED = "Parts of the source that the assistant did not see could not be "
+            + "put back in the suggested fix. Ask for a fix again.";
 
     @BuildStep
     void createBroadcasters(BuildProducer<BroadcastsBuildItem> broadcastsProducer) {
@@ -47,13 +59,30 @@ class ExceptionDevUIProcessor {
             LastExceptionBuildItem lastExceptionBuildItem,
             WorkspaceBuildItem workspaceBuildItem) {
 
+        // A repeat only counts, and now and then tells the Dev UI the new count
+        Consumer<ExceptionDeduplicator.Occurrence> publishCount = occurrence -> {
+            LastException lastException = lastExceptionBuildItem.getLastException().get();
+            if (occurrence.publish() && lastException != null
+                    && occurrence.fingerprint().equals(lastException.fingerprint())) {
+                broadcastsBuildItem.getLastExceptionBroadcastProcessor().onNext(lastException);
+            }
+        };
+        ExceptionDeduplicator deduplicator = new ExceptionDeduplicator(FINGERPRINT_FRAMES, DEDUPLICATION_WINDOW,
+                OCCURRENCES_UPDATE_INTERVAL, publishCount);
+
         exceptionNotificationProducer
                 .produce(new ExceptionNotificationBuildItem(new BiConsumer<Throwable, StackTraceElement>() {
                     @Override
                     public void accept(Throwable throwable, StackTraceElement stackTraceElement) {
+                        ExceptionDeduplicator.Occurrence occurrence = deduplicator.record(throwable);
+                        if (!occurrence.latest()) {
+                            publishCount.accept(occurrence);
+                            return;
+                        }
                         String decorateString = DecorateStackUtil.getDecoratedString(stackTraceElement,
                                 workspaceBuildItem.getPaths());
-                        LastException lastException = new LastException(stackTraceElement, throwable, decorateString);
+                        LastException lastException = new LastException(stackTraceElement, throwable, decorateString,
+                                occurrence.fingerprint(), occurrence.occurrences());
                         broadcastsBuildItem.getLastExceptionBroadcastProcessor().onNext(lastException);
                         lastExceptionBuildItem.getLastException().set(lastException);
                     }
@@ -69,6 +98,11 @@ class ExceptionDevUIProcessor {
         errorPageActionsProducer.produce(new ErrorPageActionsBuildItem("Get help with this", url));
     }
 
+    @BuildStep
+    ResponseTypeBuildItem exceptionResponseType() {
+        return new ResponseTypeBuildItem(ExceptionPrompts.ExceptionResponse.class);
+    }
+
     @BuildStep
     void exceptionPage(BuildProducer<AssistantPageBuildItem> assistantPageBuildItem) {
         assistantPageBuildItem.produce(new AssistantPageBuildItem(Page.webComponentPageBuilder()
@@ -119,13 +153,12 @@ class ExceptionDevUIProcessor {
                                 workspaceBuildItem.getPaths());
                         if (sourcePath != null) {
                             String stacktraceString = lastException.getStackTraceString();
-                            CompletionStage<ExceptionPrompts.ExceptionResponse> exceptionResponse = getExceptionResponse(
-                                    assistant, stacktraceString, sourcePath);
-                            exceptionResponse.thenAccept((suggestedFix) -> {
-                                lastSolutionBuildItem.getLastSolution().set(suggestedFix);
-                                lastSolutionBuildItem.getPath().set(sourcePath);
-                            });
-                            return exceptionResponse;
+                            FixRequest request = getExceptionResponse(assistant, stacktraceString, sourcePath,
+                                    lastException.stackTraceElement());
+                            request.response().thenAccept((suggestedFix) -> lastSolutionBuildItem.getLastSolution()
+                                    .set(new LastSolution(suggestedFix, sourcePath, request.source(),
+                                            request.packedSource())));
+                            return request.response();
                         } // TODO: We can still attempt this if we could not find a relevant file
                     }
                     return null;
@@ -136,15 +169,19 @@ class ExceptionDevUIProcessor {
         buildItemActions.actionBuilder()
                 .methodName("applyFix")
                 .function(code -> {
-                    ExceptionPrompts.ExceptionResponse exceptionOutput = (ExceptionPrompts.ExceptionResponse) lastSolutionBuildItem
-                            .getLastSolution().get();
-                    Path path = lastSolutionBuildItem.getPath().get();
-                    if (exceptionOutput != null && path != null) {
-                        lastSolutionBuildItem.getLastSolution().set(null);
-                        lastSolutionBuildItem.getPath().set(null);
-                        return ContentIO.writeContent(path, exceptionOutput.manipulatedContent());
+                    LastSolution lastSolution = lastSolutionBuildItem.getLastSolution().get();
+                    if (lastSolution == null) {
+                        return null;
                     }
-                    return null;
+                    // The assistant may have seen a trimmed source, so put back what was left out
+                    String content = ChappieContextPacker.restore(lastSolution.source(), lastSolution.packedSource(),
+                            lastSolution.response().manipulatedContent());
+                    if (content == null) {
+                        return Map.of("error", SOURCE_NOT_RESTORED);
+                    }
+                    String path = ContentIO.writeContent(lastSolution.path(), content);
+                    lastSolutionBuildItem.getLastSolution().compareAndSet(lastSolution, null);
+                    return Map.of("path", path);
                 })
                 .build();
 
@@ -168,20 +205,31 @@ class ExceptionDevUIProcessor {
                             workspaceBuildItem.getPaths());
                     String stacktraceString = lastException.getStackTraceString();
 
-                    CompletionStage<ExceptionPrompts.ExceptionResponse> exceptionResponse = getExceptionResponse(assistant,
-                            stacktraceString, sourcePath);
+                    FixRequest request = getExceptionResponse(assistant, stacktraceString, sourcePath,
+                            lastException.stackTraceElement());
 
-                    return exceptionResponse
+                    CompletableFuture<ExceptionPrompts.ExceptionResponse> response = request.response()
+                            .toCompletableFuture();
+                    CompletableFuture<String> formatted = response
                             .thenApply((Object output) -> {
                                 ExceptionPrompts.ExceptionResponse exceptionOutput = (ExceptionPrompts.ExceptionResponse) output;
+                                String source = ChappieContextPacker.restore(request.source(), request.packedSource(),
+                                        exceptionOutput.manipulatedContent());
 
                                 return "\n\n" + exceptionOutput.response() +
                                         "\n\n" + exceptionOutput.explanation() +
                                         "\n------ Diff ------ " +
                                         "\n\n" + exceptionOutput.diff() +
                                         "\n------ Suggested source ------ " +
-                                        "\n\n" + exceptionOutput.manipulatedContent();
+                                        "\n\n" + (source == null ? SOURCE_NOT_RESTORED : source);
                             });
+                    // The console cancels what we return, that has to stop the request to the assistant too
+                    formatted.whenComplete((output, failure) -> {
+                        if (formatted.isCancelled()) {
+                            response.cancel(true);
+                        }
+                    });
+                    return formatted;
                 })
                 .build());
     }
@@ -194,21 +242,39 @@ class ExceptionDevUIProcessor {
         return lastException.throwable().getMessage();
     }
 
-    private CompletionStage<ExceptionPrompts.ExceptionResponse> getExceptionResponse(Assistant assistant,
-            String stacktraceString, Path sourcePath) {
+    /**
+     * A request for a fix, with the source before and after packing, so what the assistant did not see can be put back
+     */
+    private record FixRequest(CompletionStage<ExceptionPrompts.ExceptionResponse> response, String source,
+            String packedSource) {
+    }
+
+    private FixRequest getExceptionResponse(Assistant assistant,
+            String stacktraceString, Path sourcePath, StackTraceElement stackTraceElement) {
+        String source = toContent(sourcePath);
         Map<String, String> vars = Map.of(
                 "stacktrace", stacktraceString,
-                "content", toContent(sourcePath),
-                "extension", "any"); // Make extension explisitly null so that RAG can kick in for anything
+                "content", source,
+                "extension", "any", // Make extension explisitly null so that RAG can kick in for anything
+                ChappieAssistant.VAR_FOCUS, ChappieContextPacker.focus(stackTraceElement));
+        List<Path> paths = List.of(sourcePath);
+
+        if (assistant instanceof ChappieAssistant chappie) {
+            // Pack here rather than in the assistant, so we know what it saw
+            ChappieContextPacker.Packed packed = chappie.pack(Optional.of(ExceptionPrompts.SYSTEM_MESSAGE),
+                    ExceptionPrompts.USER_MESSAGE, vars, paths);
+            vars = packed.variables();
+            paths = packed.paths();
+        }
 
         CompletionStage<ExceptionPrompts.ExceptionResponse> response = assistant.assistBuilder()
                 .systemMessage(ExceptionPrompts.SYSTEM_MESSAGE)
                 .userMessage(ExceptionPrompts.USER_MESSAGE)
                 .variables(vars)
-                .addPath(sourcePath)
+                .paths(paths)
                 .responseType(ExceptionPrompts.ExceptionResponse.class)
                 .assist();
-        return response;
+        return new FixRequest(response, source, vars.getOrDefault("content", source));
     }
 
     private String toContent(Path... path) {
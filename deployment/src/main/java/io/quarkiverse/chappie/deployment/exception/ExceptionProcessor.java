@@ -1,6 +1,5 @@
 package io.quarkiverse.chappie.deployment.exception;
 
-import java.nio.file.Path;
 import java.util.concurrent.atomic.AtomicReference;
 
 import io.quarkus.deployment.IsDevelopment;
@@ -23,8 +22,7 @@ class ExceptionProcessor {
 
     @BuildStep
     LastSolutionBuildItem createLastSolutionReference() {
-        final AtomicReference<Object> lastSuggestedFix = new AtomicReference<>();
-        final AtomicReference<Path> path = new AtomicReference<>();
-        return new LastSolutionBuildItem(lastSuggestedFix, path);
+        final AtomicReference<LastSolution> lastSuggestedFix = new AtomicReference<>();
+        return new LastSolutionBuildItem(lastSuggestedFix);
     }
 }
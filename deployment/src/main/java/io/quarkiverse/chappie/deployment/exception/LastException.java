@@ -2,8 +2,14 @@ package io.quarkiverse.chappie.deployment.exception;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.concurrent.atomic.AtomicLong;
 
-public record LastException(StackTraceElement stackTraceElement, Throwable throwable, String decorateString) {
+/**
+ * @param fingerprint identifies repeats of this exception, see {@link ExceptionDeduplicator}
+ * @param occurrences how often this exception was thrown, it goes up while it repeats
+ */
+public record LastException(StackTraceElement stackTraceElement, Throwable throwable, String decorateString,
+        String fingerprint, AtomicLong occurrences) {
 
     public String getStackTraceString() {
         StringWriter stringWriter = new StringWriter();
@@ -0,0 +1,13 @@
+package io.quarkiverse.chappie.deployment.exception;
+
+import java.nio.file.Path;
+
+/**
+ * A suggested fix that is not applied yet
+ *
+ * @param source the source the fix was asked for
+ * @param packedSource the source as the assistant saw it, which may have parts left out
+ */
+public record LastSolution(ExceptionPrompts.ExceptionResponse response, Path path, String source, String packedSource) {
+
+}
@@ -1,24 +1,17 @@
 package io.quarkiverse.chappie.deployment.exception;
 
-import java.nio.file.Path;
 import java.util.concurrent.atomic.AtomicReference;
 
 import io.quarkus.builder.item.SimpleBuildItem;
 
 public final class LastSolutionBuildItem extends SimpleBuildItem {
-    private final AtomicReference<Object> lastSolution;
-    private final AtomicReference<Path> path;
+    private final AtomicReference<LastSolution> lastSolution;
 
-    public LastSolutionBuildItem(AtomicReference<Object> lastSolution, AtomicReference<Path> path) {
+    public LastSolutionBuildItem(AtomicReference<LastSolution> lastSolution) {
         this.lastSolution = lastSolution;
-        this.path = path;
     }
 
-    public AtomicReference<Object> getLastSolution() {
+    public AtomicReference<LastSolution> getLastSolution() {
         return lastSolution;
     }
-
-    public AtomicReference<Path> getPath() {
-        return path;
-    }
 }
@@ -0,0 +1,99 @@
+package io.quarkiverse.chappie.deployment.workspace;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import io.quarkiverse.chappie.deployment.ChappieConfig;
+import io.quarkus.assistant.runtime.dev.Assistant;
+import io.quarkus.deployment.IsLocalDevelopment;
+import io.quarkus.deployment.annotations.BuildProducer;
+import io.quarkus.deployment.annotations.BuildStep;
+import io.quarkus.deployment.annotations.BuildSteps;
+import io.quarkus.deployment.pkg.builditem.OutputTargetBuildItem;
+import io.quarkus.dev.console.DevConsoleManager;
+import io.quarkus.devui.spi.buildtime.BuildTimeActionBuildItem;
+import io.quarkus.devui.spi.workspace.WorkspaceBuildItem;
+import io.smallrye.mutiny.Multi;
+
+/**
+ * Runs the Add JavaDoc and Generate Test actions over all the sources in a directory or package, rather than one file
+ * at a time
+ */
+@BuildSteps(onlyIf = IsLocalDevelopment.class)
+class BatchActionsProcessor {
+
+    @BuildStep
+    void createBatchActions(BuildProducer<BuildTimeActionBuildItem> buildTimeActionProducer,
+            WorkspaceBuildItem workspaceBuildItem,
+            ChappieConfig chappieConfig,
+            OutputTargetBuildItem outputTargetBuildItem) {
+
+        WorkspaceBatch batch = new WorkspaceBatch(BuiltInActionsProcessor.workspaceIndex(outputTargetBuildItem),
+                chappieConfig.batch().concurrency(), chappieConfig.batch().requestsPerMinute());
+
+        Map<String, WorkspaceBatch.Action> actions = Map.of(
+                BuiltInActionsProcessor.ACTION_JAVADOC, new WorkspaceBatch.Action(
+                        BuiltInActionsProcessor.ACTION_JAVADOC,
+                        JavaDocPrompts.SYSTEM_MESSAGE,
+                        JavaDocPrompts.USER_MESSAGE,
+                        JavaDocPrompts.JavaDocResponse.class,
+                        answer -> ((JavaDocPrompts.JavaDocResponse) answer).content(),
+                        path -> path),
+                BuiltInActionsProcessor.ACTION_TEST, new WorkspaceBatch.Action(
+                        BuiltInActionsProcessor.ACTION_TEST,
+                        TestGenerationPrompts.SYSTEM_MESSAGE,
+                        TestGenerationPrompts.USER_MESSAGE,
+                        TestGenerationPrompts.TestGenerationResponse.class,
+                        answer -> ((TestGenerationPrompts.TestGenerationResponse) answer).content(),
+                        BuiltInActionsProcessor::toTestPath));
+
+        BuildTimeActionBuildItem buildItemActions = new BuildTimeActionBuildItem();
+
+        // This streams the progress of a batch, file by file
+        buildItemActions.subscriptionBuilder()
+                .methodName("runBatch")
+                .function(params -> {
+                    WorkspaceBatch.Action action = actions.get(params.get("action"));
+                    if (action == null) {
+                        return Multi.createFrom().item(Map.of("error", "Unknown action " + params.get("action")));
+                    }
+                    Assistant assistant = DevConsoleManager.getGlobal(DevConsoleManager.DEV_MANAGER_GLOBALS_ASSISTANT);
+                    if (assistant == null || !assistant.isAvailable()) {
+                        return Multi.createFrom().item(Map.of("error", "Assistant not available"));
+                    }
+                    List<Path> files = WorkspaceBatch.findFiles(params.get("selection"), workspaceBuildItem.getPaths());
+                    if (files.isEmpty()) {
+                        return Multi.createFrom().item(Map.of("error", "No Java sources found in " + params.get("selection")));
+                    }
+                    return batch.run(assistant, action, files);
+                })
+                .build();
+
+        // This writes the results the user accepted
+        buildItemActions.actionBuilder()
+                .methodName("applyBatch")
+                .description("Saves the results of a batch for the given files")
+                .parameter("batch", String.class, "The id of the batch")
+                .parameter("paths", String.class, "The source files to save the result for, one per line")
+                .function(params -> {
+                    String paths = params.get("paths");
+                    return paths == null ? List.of()
+                            : batch.apply(params.get("batch"), paths.lines().filter(l -> !l.isBlank()).toList());
+                })
+                .build();
+
+        // This drops the results of a batch
+        buildItemActions.actionBuilder()
+                .methodName("discardBatch")
+                .description("Discards the results of a batch")
+                .parameter("batch", String.class, "The id of the batch")
+                .function(params -> {
+                    batch.discard(params.get("batch"));
+                    return true;
+                })
+                .build();
+
+        buildTimeActionProducer.produce(buildItemActions);
+    }
+}
@@ -5,12 +5,15 @@ import java.net.URI;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
 
+import io.quarkiverse.chappie.deployment.ResponseTypeBuildItem;
 import io.quarkus.assistant.runtime.dev.Assistant;
 import io.quarkus.deployment.IsLocalDevelopment;
 import io.quarkus.deployment.annotations.BuildProducer;
 import io.quarkus.deployment.annotations.BuildStep;
 import io.quarkus.deployment.annotations.BuildSteps;
+import io.quarkus.deployment.pkg.builditem.OutputTargetBuildItem;
 import io.quarkus.devui.spi.workspace.Action;
 import io.quarkus.devui.spi.workspace.ActionBuilder;
 import io.quarkus.devui.spi.workspace.Display;
@@ -22,28 +25,46 @@ import io.quarkus.devui.spi.workspace.WorkspaceActionBuildItem;
 class BuiltInActionsProcessor {
 
     @BuildStep
-    void createBuiltInActions(BuildProducer<WorkspaceActionBuildItem> workspaceActionProducer) {
+    void createBuiltInActions(BuildProducer<WorkspaceActionBuildItem> workspaceActionProducer,
+            BuildProducer<ResponseTypeBuildItem> responseTypeProducer,
+            OutputTargetBuildItem outputTargetBuildItem) {
+        WorkspaceIndex index = workspaceIndex(outputTargetBuildItem);
         workspaceActionProducer.produce(new WorkspaceActionBuildItem(
-                getAddJavaDocAction(),
-                getTestGenerationAction(),
+                getAddJavaDocAction(index),
+                getTestGenerationAction(index),
                 getExplainAction(),
                 getCompleteTodoAction()));
 
+        responseTypeProducer.produce(new ResponseTypeBuildItem(JavaDocPrompts.JavaDocResponse.class));
+        responseTypeProducer.produce(new ResponseTypeBuildItem(TestGenerationPrompts.TestGenerationResponse.class));
+        responseTypeProducer.produce(new ResponseTypeBuildItem(ExplainPrompts.JavaDocResponse.class));
+        responseTypeProducer.produce(new ResponseTypeBuildItem(CompleteTodoPrompts.CompleteTodoResponse.class));
     }
 
-    private ActionBuilder getAddJavaDocAction() {
+    private ActionBuilder getAddJavaDocAction(WorkspaceIndex index) {
         return Action.actionBuilder()
                 .label("Add JavaDoc")
                 .assistantFunction((a, p) -> {
                     Assistant assistant = (Assistant) a;
                     Map params = (Map) p;
-                    return assistant.assistBuilder()
+                    Path path = getPath(params);
+                    String content = getContent(params);
+                    String fingerprint = WorkspaceIndex.fingerprint(assistant, JavaDocPrompts.SYSTEM_MESSAGE,
+                            JavaDocPrompts.USER_MESSAGE, JavaDocPrompts.JavaDocResponse.class);
+                    CompletionStage<JavaDocPrompts.JavaDocResponse> response = assistant.assistBuilder()
                             .systemMessage(JavaDocPrompts.SYSTEM_MESSAGE)
                             .userMessage(JavaDocPrompts.USER_MESSAGE)
                             .variables(getVars(params))
-                            .addPath(getPath(params))
+                            .addPath(path)
                             .responseType(JavaDocPrompts.JavaDocResponse.class)
                             .assist();
+                    // Returned as it is, cancelling it has to reach the request
+                    response.whenComplete((r, failure) -> {
+                        if (failure == null) {
+                            index.put(ACTION_JAVADOC, path, fingerprint, content, r.content());
+                        }
+                    });
+                    return response;
                 })
                 .display(Display.replace)
                 .displayType(DisplayType.code)
@@ -51,28 +72,32 @@ class BuiltInActionsProcessor {
                 .filter(Patterns.JAVA_ANY);
     }
 
-    private ActionBuilder getTestGenerationAction() {
+    private ActionBuilder getTestGenerationAction(WorkspaceIndex index) {
         return Action.actionBuilder()
                 .label("Generate Test")
                 .assistantFunction((a, p) -> {
                     Assistant assistant = (Assistant) a;
                     Map params = (Map) p;
-                    return assistant.assistBuilder()
+                    Path path = getPath(params);
+                    String content = getContent(params);
+                    String fingerprint = WorkspaceIndex.fingerprint(assistant, TestGenerationPrompts.SYSTEM_MESSAGE,
+                            TestGenerationPrompts.USER_MESSAGE, TestGenerationPrompts.TestGenerationResponse.class);
+                    CompletionStage<TestGenerationPrompts.TestGenerationResponse> response = assistant.assistBuilder()
                             .systemMessage(TestGenerationPrompts.SYSTEM_MESSAGE)
                             .userMessage(TestGenerationPrompts.USER_MESSAGE)
                             .variables(getVars(params))
-                            .addPath(getPath(params))
+                            .addPath(path)
                             .responseType(TestGenerationPrompts.TestGenerationResponse.class)
                             .assist();
+                    // Returned as it is, cancelling it has to reach the request
+                    response.whenComplete((r, failure) -> {
+                        if (failure == null) {
+                            index.put(ACTION_TEST, path, fingerprint, content, r.content());
+                        }
+                    });
+                    return response;
                 })
-                .pathConverter((Object param) -> {
-                    Path contentPath = (Path) param;
-                    if (isTestPath(contentPath))
-                        return contentPath; // Already correct
-                    String modifiedPath = contentPath.toString().replace(File.separator + "main" + File.separator,
-                            File.separator + "test" + File.separator);
-                    return Paths.get(modifiedPath.substring(0, modifiedPath.length() - 5) + "Test.java");
-                })
+                .pathConverter((Object param) -> toTestPath((Path) param))
                 .display(Display.dialog)
                 .displayType(DisplayType.code)
                 .namespace(NAMESPACE)
@@ -146,11 +171,31 @@ class BuiltInActionsProcessor {
         return null;
     }
 
-    private boolean isTestPath(Path path) {
+    /**
+     * The results of the actions are kept with the build output, so a clean build starts over
+     */
+    static WorkspaceIndex workspaceIndex(OutputTargetBuildItem outputTargetBuildItem) {
+        return new WorkspaceIndex(outputTargetBuildItem.getOutputDirectory().resolve("chappie").resolve("workspace-index"));
+    }
+
+    /**
+     * Where the test for this source file goes
+     */
+    static Path toTestPath(Path contentPath) {
+        if (isTestPath(contentPath))
+            return contentPath; // Already correct
+        String modifiedPath = contentPath.toString().replace(File.separator + "main" + File.separator,
+                File.separator + "test" + File.separator);
+        return Paths.get(modifiedPath.substring(0, modifiedPath.length() - 5) + "Test.java");
+    }
+
+    private static boolean isTestPath(Path path) {
         Path normalizedPath = path.toAbsolutePath().normalize();
         return normalizedPath.toString().contains("/src/test/") ||
                 normalizedPath.toString().contains("\\src\\test\\"); // Windows path handling
     }
 
+    static final String ACTION_JAVADOC = "javadoc";
+    static final String ACTION_TEST = "test";
     private static final String NAMESPACE = "devui-assistant";
 }
@@ -0,0 +1,307 @@
+package io.quarkiverse.chappie.deployment.workspace;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import io.quarkiverse.chappie.deployment.ContentIO;
+import io.quarkiverse.chappie.runtime.dev.ChappieHttpException;
+import io.quarkus.assistant.runtime.dev.Assistant;
+import io.quarkus.devui.spi.workspace.Patterns;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+
+/**
+ * Runs a workspace action over many files. Only a few files are with the assistant at the same time, and requests
+ * start no faster than the configured rate, so a big batch stays within the limits of the provider. A file that is
+ * rate limited anyway is tried again a bit later.
+ *
+ * Every file reports when it starts and when it is done. The results are kept by batch until they are applied or
+ * discarded, so they can be reviewed first, and running another batch does not lose them. Only the results of the
+ * last few batches are kept. Files that already contain the result of an earlier run, as the {@link WorkspaceIndex}
+ * remembers it, are skipped.
+ */
+final class WorkspaceBatch {
+
+    /**
+     * What a batch does with every file
+     *
+     * @param name the name of the action in the workspace index
+     * @param content gets the new content from the answer of the assistant
+     * @param target the file the new content goes to
+     */
+    record Action(String name, String systemMessage, String userMessage, Class<?> responseType,
+            Function<Object, String> content, UnaryOperator<Path> target) {
+    }
+
+    private record Result(Path target, String content) {
+    }
+
+    private final WorkspaceIndex index;
+    private final int concurrency;
+    private final long interval;
+    // Results that are not applied yet, by batch and then by source file
+    private final Map<String, Map<String, Result>> batches = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Map<String, Result>> eldest) {
+            return size() > MAX_BATCHES;
+        }
+    });
+
+    WorkspaceBatch(WorkspaceIndex index, int concurrency, int requestsPerMinute) {
+        this.index = index;
+        this.concurrency = Math.max(1, concurrency);
+        this.interval = Duration.ofMinutes(1).toMillis() / Math.max(1, requestsPerMinute);
+    }
+
+    /**
+     * Run the action over the files. Cancelling the subscription stops the files that are still with the assistant,
+     * and the ones that did not start yet.
+     *
+     * @return the progress, every item has the id of the batch to apply or discard its results with
+     */
+    Multi<Map<String, String>> run(Assistant assistant, Action action, List<Path> files) {
+        String id = UUID.randomUUID().toString();
+        Map<String, Result> results = new ConcurrentHashMap<>();
+        batches.put(id, results);
+        int total = files.size();
+        AtomicInteger completed = new AtomicInteger();
+        AtomicLong nextStart = new AtomicLong();
+        String fingerprint = WorkspaceIndex.fingerprint(assistant, action.systemMessage(), action.userMessage(),
+                action.responseType());
+
+        Multi<Map<String, String>> progress = Multi.createFrom().iterable(files)
+                .onItem().transformToMulti(file -> {
+                    if (isApplied(action, file, fingerprint)) {
+                        return Multi.createFrom().item(() -> event(file, STATUS_SKIPPED, completed.incrementAndGet(),
+                                total));
+                    }
+                    return pace(nextStart)
+                            .onItem().transformToMulti(ignored -> Multi.createBy().concatenating().streams(
+                                    Multi.createFrom().item(() -> event(file, STATUS_RUNNING, completed.get(), total)),
+                                    process(assistant, action, file, fingerprint, results, completed, total)
+                                            .toMulti()));
+                })
+                .merge(concurrency);
+
+        // Dev UI subscriptions do not see completion, so we end with an explicit done item
+        Multi<Map<String, String>> done = Multi.createFrom().item(() -> {
+            Map<String, String> m = new HashMap<>();
+            m.put("done", "true");
+            m.put("completed", String.valueOf(completed.get()));
+            m.put("total", String.valueOf(total));
+            return m;
+        });
+        return Multi.createBy().concatenating().streams(progress, done)
+                .map(m -> {
+                    m.put("batch", id);
+                    return m;
+                });
+    }
+
+    /**
+     * Write the results of a batch for these source files
+     *
+     * @return the files that were written
+     */
+    List<String> apply(String batch, Collection<String> paths) {
+        Map<String, Result> results = batch == null ? null : batches.get(batch);
+        if (results == null) {
+            return List.of();
+        }
+        List<String> written = new ArrayList<>();
+        for (String path : paths) {
+            Result result = results.remove(path);
+            if (result != null) {
+                written.add(ContentIO.writeContent(result.target(), result.content()));
+            }
+        }
+        return written;
+    }
+
+    void discard(String batch) {
+        if (batch != null) {
+            batches.remove(batch);
+        }
+    }
+
+    /**
+     * Whether the file already contains the result of an earlier run. Otherwise the assistant is asked, that answers
+     * from its response cache when it can. A result that was edited since is not the result any more, so it is asked
+     * for again.
+     */
+    private boolean isApplied(Action action, Path file, String fingerprint) {
+        try {
+            String source = ContentIO.readContents(file);
+            Path target = action.target().apply(file);
+            String current = target.equals(file) ? source
+                    : Files.exists(target) ? ContentIO.readContents(target) : null;
+            return index.isApplied(action.name(), file, fingerprint, source, current);
+        } catch (RuntimeException ex) {
+            // Ask the assistant, that reports the problem for this file
+            return false;
+        }
+    }
+
+    private Uni<Map<String, String>> process(Assistant assistant, Action action, Path file, String fingerprint,
+            Map<String, Result> results, AtomicInteger completed, int total) {
+        AtomicReference<String> source = new AtomicReference<>();
+        return Uni.createFrom().completionStage(() -> {
+            source.set(ContentIO.readContents(file));
+            CompletionStage<Object> answer = assistant.assistBuilder()
+                    .systemMessage(action.systemMessage())
+                    .userMessage(action.userMessage())
+                    .variables(Map.of(
+                            "content", source.get(),
+                            "extension", "any")) // Make extension explisitly null so that RAG can kick in for anything
+                    .addPath(file)
+                    .responseType(action.responseType())
+                    .assist();
+            return answer;
+        })
+                .onFailure(WorkspaceBatch::isRateLimited).retry()
+                .withBackOff(RETRY_DELAY, MAX_RETRY_DELAY).withJitter(0.5).atMost(RATE_LIMIT_RETRIES)
+                .map(answer -> {
+                    String content = action.content().apply(answer);
+                    index.put(action.name(), file, fingerprint, source.get(), content);
+                    return result(results, file, action.target().apply(file), content, completed, total);
+                })
+                .onFailure().recoverWithItem(t -> {
+                    Map<String, String> m = event(file, STATUS_FAILED, completed.incrementAndGet(), total);
+                    m.put("error", String.valueOf(unwrap(t).getMessage()));
+                    return m;
+                });
+    }
+
+    private static Map<String, String> result(Map<String, Result> results, Path file, Path target, String content,
+            AtomicInteger completed, int total) {
+        results.put(file.toString(), new Result(target, content));
+        Map<String, String> m = event(file, STATUS_DONE, completed.incrementAndGet(), total);
+        m.put("target", target.toString());
+        m.put("content", content);
+        m.put("replaces", String.valueOf(!target.equals(file) && Files.exists(target)));
+        return m;
+    }
+
+    /**
+     * Completes when the next request may start
+     */
+    private Uni<Void> pace(AtomicLong nextStart) {
+        return Uni.createFrom().deferred(() -> {
+            long now = System.currentTimeMillis();
+            long start = Math.max(now, nextStart.getAndUpdate(previous -> Math.max(previous, now) + interval));
+            if (start <= now) {
+                return Uni.createFrom().voidItem();
+            }
+            return Uni.createFrom().voidItem().onItem().delayIt().by(Duration.ofMillis(start - now));
+        });
+    }
+
+    private static Map<String, String> event(Path file, String status, int completed, int total) {
+        Map<String, String> m = new HashMap<>();
+        m.put("path", file.toString());
+        m.put("status", status);
+        m.put("completed", String.valueOf(completed));
+        m.put("total", String.valueOf(total));
+        return m;
+    }
+
+    private static boolean isRateLimited(Throwable failure) {
+        return unwrap(failure) instanceof ChappieHttpException http && http.getStatus() == 429;
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        Throwable cause = failure;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * The Java sources a batch runs over. The selection is a directory, like a module or a source folder, or a package
+     * name. A package includes its sub packages.
+     */
+    static List<Path> findFiles(String selection, List<Path> workspacePaths) {
+        if (selection == null || selection.isBlank()) {
+            return List.of();
+        }
+        String s = selection.trim();
+        Predicate<Path> selected;
+        Path dir = toPath(s);
+        if (dir != null && Files.isDirectory(dir)) {
+            Path root = dir.toAbsolutePath().normalize();
+            selected = file -> file.toAbsolutePath().normalize().startsWith(root);
+        } else if (PACKAGE.matcher(s).matches()) {
+            String packageDir = "/src/main/java/" + s.replace('.', '/') + "/";
+            selected = file -> toUnixPath(file).contains(packageDir);
+        } else {
+            return List.of();
+        }
+
+        TreeSet<Path> files = new TreeSet<>();
+        for (Path path : workspacePaths) {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    walk.filter(Files::isRegularFile).filter(selected).forEach(files::add);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            } else if (selected.test(path)) {
+                files.add(path);
+            }
+        }
+        files.removeIf(file -> !Patterns.JAVA_SRC.matcher(toUnixPath(file)).matches());
+        return new ArrayList<>(files);
+    }
+
+    private static Path toPath(String selection) {
+        try {
+            return selection.startsWith("file:") ? Paths.get(URI.create(selection)) : Paths.get(selection);
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+
+    private static String toUnixPath(Path path) {
+        return path.toString().replace(File.separatorChar, '/');
+    }
+
+    static final String STATUS_RUNNING = "running";
+    static final String STATUS_DONE = "done";
+    static final String STATUS_FAILED = "failed";
+    // The file already contains the result of an earlier run
+    static final String STATUS_SKIPPED = "skipped";
+
+    private static final Pattern PACKAGE = Pattern.compile("[\\p{L}_$][\\p{L}\\p{N}_$]*(\\.[\\p{L}_$][\\p{L}\\p{N}_$]*)*");
+    // Batches whose results were neither applied nor discarded, like when the page was closed
+    private static final int MAX_BATCHES = 4;
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(2);
+    private static final Duration MAX_RETRY_DELAY = Duration.ofSeconds(30);
+    private static final int RATE_LIMIT_RETRIES = 3;
+}
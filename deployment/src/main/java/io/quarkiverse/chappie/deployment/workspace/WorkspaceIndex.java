@@ -0,0 +1,129 @@
+package io.quarkiverse.chappie.deployment.workspace;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Properties;
+
+import io.quarkiverse.chappie.runtime.dev.ChappieAssistant;
+import io.quarkus.assistant.runtime.dev.Assistant;
+import io.quarkus.logging.Log;
+
+/**
+ * Remembers the last result of a workspace action per file, in the build output of the project, so a batch can skip the
+ * files that already contain it. Only a hash of the result is kept, asking again for a file that did not change is
+ * answered by the response cache of the assistant.
+ *
+ * Every result is stored with a fingerprint of the prompts, the response type and the model, so changing any of them
+ * means asking again.
+ */
+final class WorkspaceIndex {
+
+    private final Path dir;
+
+    WorkspaceIndex(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * The last result of the action on this file is applied already. That is when the file is still the same, or has
+     * that result applied, the fingerprint did not change, and the file the result goes to contains that result.
+     *
+     * @param current the content of the file the result goes to
+     */
+    boolean isApplied(String action, Path path, String fingerprint, String source, String current) {
+        if (path == null || source == null || current == null) {
+            return false;
+        }
+        Path file = dir.resolve(key(action, path));
+        if (Files.notExists(file)) {
+            return false;
+        }
+        Properties p = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            p.load(in);
+        } catch (IOException ex) {
+            Log.debug("Could not read the workspace index", ex);
+            return false;
+        }
+        String sourceHash = hash(source);
+        String resultHash = p.getProperty(KEY_RESULT);
+        return fingerprint.equals(p.getProperty(KEY_FINGERPRINT))
+                && (sourceHash.equals(p.getProperty(KEY_SOURCE)) || sourceHash.equals(resultHash))
+                && hash(current).equals(resultHash);
+    }
+
+    /**
+     * Remember the result of the action on this file
+     */
+    void put(String action, Path path, String fingerprint, String source, String content) {
+        if (path == null || source == null || content == null) {
+            return;
+        }
+        Properties p = new Properties();
+        p.setProperty(KEY_ACTION, action);
+        p.setProperty(KEY_FILE, path.toString());
+        p.setProperty(KEY_FINGERPRINT, fingerprint);
+        p.setProperty(KEY_SOURCE, hash(source));
+        p.setProperty(KEY_RESULT, hash(content));
+
+        Path temp = null;
+        try {
+            Files.createDirectories(dir);
+            temp = Files.createTempFile(dir, "index", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                p.store(out, null);
+            }
+            Path file = dir.resolve(key(action, path));
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ex) {
+            Log.debug("Could not update the workspace index", ex);
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Identifies what the result of an action depends on, other than the file itself
+     */
+    static String fingerprint(Assistant assistant, String systemMessage, String userMessage, Class<?> responseType) {
+        String configuration = assistant instanceof ChappieAssistant chappie ? chappie.getConfiguration() : null;
+        return hash(String.join("\n\u0000", String.valueOf(configuration), systemMessage, userMessage,
+                responseType.getName()));
+    }
+
+    private static String key(String action, Path path) {
+        return hash(action + "\n\u0000" + path.toAbsolutePath().normalize()) + ".properties";
+    }
+
+    private static String hash(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static final String KEY_ACTION = "action";
+    private static final String KEY_FILE = "file";
+    private static final String KEY_FINGERPRINT = "fingerprint";
+    private static final String KEY_SOURCE = "sourceHash";
+    private static final String KEY_RESULT = "resultHash";
+}
@@ -114,8 +114,20 @@ export const templates = {
     'quarkus-chappie-content-copied': 'Content copied to clipboard',
     'quarkus-chappie-copy-failed': str`Failed to copy content: ${0}`,
     'quarkus-chappie-view-in-ide': 'View in IDE',
+    'quarkus-chappie-exception-occurrences': str`Thrown ${0} times`,
     'quarkus-chappie-suggest-fix': 'Suggest fix with AI',
 
+    // Batch page
+    'quarkus-chappie-batch-selection': 'Directory or package',
+    'quarkus-chappie-batch-javadoc': 'Add JavaDoc',
+    'quarkus-chappie-batch-test': 'Generate Test',
+    'quarkus-chappie-batch-run': 'Run',
+    'quarkus-chappie-batch-progress': str`${0} of ${1} files`,
+    'quarkus-chappie-batch-replaces': 'Replaces the existing file',
+    'quarkus-chappie-batch-up-to-date': 'Up to date',
+    'quarkus-chappie-batch-save': str`Save ${0} files`,
+    'quarkus-chappie-batch-updated': str`Updated ${0} files`,
+
     // Build action descriptions
     'quarkus-chappie-search-docs-desc': 'Search for Quarkus documentation',
     'quarkus-chappie-get-last-exception-desc': 'Gets the last known exception that happend',
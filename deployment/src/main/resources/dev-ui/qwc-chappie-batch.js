@@ -0,0 +1,258 @@
+import { LitElement, html, css} from 'lit';
+import { JsonRpc } from 'jsonrpc';
+import { msg, str, updateWhenLocaleChanges } from 'localization';
+import '@vaadin/button';
+import '@vaadin/checkbox';
+import '@vaadin/details';
+import '@vaadin/progress-bar';
+import '@vaadin/radio-group';
+import '@vaadin/text-field';
+import '@qomponent/qui-code-block';
+import { observeState } from 'lit-element-state';
+import { themeState } from 'theme-state';
+import { notifier } from 'notifier';
+import 'qwc-no-data';
+import 'qui-assistant-warning';
+import { assistantState } from 'assistant-state';
+
+/**
+ * This component runs a workspace action over all the sources in a directory or package, and lets the user review
+ * the results before saving them
+ */
+export class QwcChappieBatch extends observeState(LitElement) {
+    jsonRpc = new JsonRpc(this);
+
+    static styles = css`
+        :host {
+            display: flex;
+            flex-direction: column;
+            height: 100%;
+            padding: 10px;
+            gap: 10px;
+        }
+        .input {
+            display: flex;
+            align-items: baseline;
+            gap: 10px;
+        }
+        .selection {
+            flex: 1;
+        }
+        .progress {
+            display: flex;
+            flex-direction: column;
+        }
+        .files {
+            display: flex;
+            flex-direction: column;
+            overflow-y: auto;
+        }
+        .file {
+            display: flex;
+            align-items: baseline;
+            gap: 10px;
+        }
+        .running {
+            color: var(--lumo-contrast-50pct);
+        }
+        .failed {
+            color: var(--lumo-error-color);
+        }
+        .replaces {
+            color: var(--lumo-warning-color, var(--lumo-error-color));
+            font-size: var(--lumo-font-size-s);
+        }
+        .buttons {
+            display: flex;
+            gap: 10px;
+        }
+    `;
+
+    static properties = {
+        _selection: {state: true},
+        _action: {state: true},
+        _files: {state: true},
+        _completed: {state: true},
+        _total: {state: true},
+        _running: {state: true}
+    };
+
+    constructor() {
+        super();
+        updateWhenLocaleChanges(this);
+        this._selection = '';
+        this._action = 'javadoc';
+        this._files = new Map();
+        this._completed = 0;
+        this._total = 0;
+        this._running = false;
+    }
+
+    disconnectedCallback() {
+        this._cancelBatch();
+        super.disconnectedCallback();
+    }
+
+    render() {
+        if(!assistantState.current.isConfigured){
+            return html`<qwc-no-data message="${msg('Assistant is not configured.', { id: 'quarkus-chappie-not-configured' })}">
+                        </qwc-no-data>`;
+        }
+        return html`${this._renderInput()}
+                    ${this._renderProgress()}
+                    ${this._renderFiles()}
+                    ${this._renderButtons()}`;
+    }
+
+    _renderInput(){
+        return html`<div class="input">
+                        <vaadin-text-field class="selection"
+                            label="${msg('Directory or package', { id: 'quarkus-chappie-batch-selection' })}"
+                            placeholder="org.acme.service"
+                            .value="${this._selection}"
+                            ?disabled=${this._running}
+                            @value-changed="${(e) => this._selection = e.detail.value}">
+                        </vaadin-text-field>
+                        <vaadin-radio-group
+                            .value="${this._action}"
+                            ?disabled=${this._running}
+                            @value-changed="${(e) => this._action = e.detail.value}">
+                            <vaadin-radio-button value="javadoc" label="${msg('Add JavaDoc', { id: 'quarkus-chappie-batch-javadoc' })}"></vaadin-radio-button>
+                            <vaadin-radio-button value="test" label="${msg('Generate Test', { id: 'quarkus-chappie-batch-test' })}"></vaadin-radio-button>
+                        </vaadin-radio-group>
+                        ${this._running ?
+                            html`<vaadin-button theme="error secondary" @click="${this._cancelBatch}">
+                                    ${msg('Cancel', { id: 'quarkus-chappie-cancel' })}
+                                </vaadin-button>` :
+                            html`<vaadin-button theme="primary" @click="${this._runBatch}" ?disabled=${!this._selection}>
+                                    ${msg('Run', { id: 'quarkus-chappie-batch-run' })}
+                                </vaadin-button>`}
+                    </div>`;
+    }
+
+    _renderProgress(){
+        if(this._total > 0){
+            return html`<div class="progress">
+                            <vaadin-progress-bar min="0" max="${this._total}" .value="${this._completed}"></vaadin-progress-bar>
+                            <span class="text-secondary text-xs">
+                                ${msg(str`${0} of ${1} files`, { id: 'quarkus-chappie-batch-progress' })(this._completed, this._total)}
+                            </span>
+                        </div>`;
+        }
+    }
+
+    _renderFiles(){
+        return html`<div class="files">
+                        ${[...this._files.values()].map((file) => this._renderFile(file))}
+                    </div>`;
+    }
+
+    _renderFile(file){
+        if(file.status === 'done'){
+            return html`<vaadin-details>
+                            <div slot="summary" class="file">
+                                <vaadin-checkbox .checked="${file.selected}"
+                                    @click="${(e) => e.stopPropagation()}"
+                                    @change="${(e) => this._select(file, e.target.checked)}">
+                                </vaadin-checkbox>
+                                <span>${file.target}</span>
+                                ${file.replaces === 'true' ? html`<span class="replaces">${msg('Replaces the existing file', { id: 'quarkus-chappie-batch-replaces' })}</span>` : ''}
+                            </div>
+                            <qui-code-block mode='java' theme='${themeState.theme.name}'>
+                                <slot>${file.content}</slot>
+                            </qui-code-block>
+                        </vaadin-details>`;
+        } else if(file.status === 'failed'){
+            return html`<div class="file failed">${file.path}: ${file.error}</div>`;
+        } else if(file.status === 'skipped'){
+            return html`<div class="file running">${file.path}: ${msg('Up to date', { id: 'quarkus-chappie-batch-up-to-date' })}</div>`;
+        }
+        return html`<div class="file running">${file.path} ...</div>`;
+    }
+
+    _renderButtons(){
+        const selected = [...this._files.values()].filter((file) => file.selected);
+        if(!this._running && this._files.size > 0){
+            return html`<div class="buttons">
+                            <vaadin-button theme="primary" @click="${this._applyBatch}" ?disabled=${selected.length === 0}>
+                                <vaadin-icon icon="font-awesome-solid:floppy-disk"></vaadin-icon>
+                                ${msg(str`Save ${0} files`, { id: 'quarkus-chappie-batch-save' })(selected.length)}
+                            </vaadin-button>
+                            <vaadin-button theme="tertiary" @click="${this._discardBatch}">
+                                <vaadin-icon icon="font-awesome-solid:trash-can"></vaadin-icon>
+                                ${msg('Discard', { id: 'quarkus-chappie-discard' })}
+                            </vaadin-button>
+                            <qui-assistant-warning></qui-assistant-warning>
+                        </div>`;
+        }
+    }
+
+    _select(file, selected){
+        file.selected = selected;
+        this._files = new Map(this._files);
+    }
+
+    _runBatch(){
+        this._cancelBatch();
+        this._discardResults();
+        this._files = new Map();
+        this._completed = 0;
+        this._total = 0;
+        this._running = true;
+        this._batchObserver = this.jsonRpc.runBatch({selection: this._selection, action: this._action}).onNext(jsonRpcResponse => {
+            let r = jsonRpcResponse.result;
+            if(r?.batch){
+                this._batchId = r.batch;
+            }
+            if(r?.error && !r.path){
+                this._endBatch();
+                notifier.showErrorMessage(r.error);
+            }else if(r?.done){
+                this._endBatch();
+            }else if(r?.path){
+                this._completed = Number(r.completed);
+                this._total = Number(r.total);
+                r.selected = r.status === 'done';
+                const files = new Map(this._files);
+                files.set(r.path, r);
+                this._files = files;
+            }
+        });
+    }
+
+    _endBatch(){
+        this._batchObserver = null;
+        this._running = false;
+    }
+
+    _cancelBatch(){
+        if(this._batchObserver){
+            this._batchObserver.cancel();
+            this._batchObserver = null;
+        }
+        this._running = false;
+    }
+
+    _applyBatch(){
+        const paths = [...this._files.values()].filter((file) => file.selected).map((file) => file.path);
+        this.jsonRpc.applyBatch({batch: this._batchId, paths: paths.join('\n')}).then(jsonRpcResponse => {
+            notifier.showInfoMessage(msg(str`Updated ${0} files`, { id: 'quarkus-chappie-batch-updated' })(jsonRpcResponse.result.length));
+            this._discardBatch();
+        });
+    }
+
+    _discardBatch(){
+        this._discardResults();
+        this._files = new Map();
+        this._completed = 0;
+        this._total = 0;
+    }
+
+    _discardResults(){
+        if(this._batchId){
+            this.jsonRpc.discardBatch({batch: this._batchId});
+            this._batchId = null;
+        }
+    }
+}
+customElements.define('qwc-chappie-batch', QwcChappieBatch);
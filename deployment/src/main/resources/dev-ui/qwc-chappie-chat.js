@@ -126,6 +126,7 @@ export class QwcChappieChat extends observeState(QwcHotReloadElement) {
     }
     
     disconnectedCallback() {
+        this._cancelStream();
         super.disconnectedCallback();
         const pageDiv = document.getElementById('page');
         if (pageDiv) {
@@ -260,46 +261,62 @@ export class QwcChappieChat extends observeState(QwcHotReloadElement) {
         this._addAssistantMessage(msg('Thinking ...', { id: 'quarkus-chappie-thinking' }));
         this._inputIsBlocked = true;
         this._scrollToBottom();
-        this.jsonRpc.chat({message:m}).then(jsonRpcResponse => {
-            document.body.style.cursor = 'default';
-            
-            this._removeLastMessage();
-            
-            if(jsonRpcResponse.result?.completedExceptionally){
-                this._addServerErrorMessage();
-            } else {
-                const [key, value] = Object.entries(jsonRpcResponse.result)[0];
-                this._memoryId = key;
-
-                if(value?.completedExceptionally && value?.completedExceptionally === true){
+        let markdown = "";
+        this._cancelStream();
+        this._chatObserver = this.jsonRpc.streamChat({message:m}).onNext(jsonRpcResponse => {
+            let r = jsonRpcResponse.result;
+            if(r?.error){
+                this._endStream();
+                this._removeLastMessage();
+                this._addErrorMessage(r.error + msg('. See the Assistant log for details', { id: 'quarkus-chappie-error-see-log-suffix' }));
+            }else if(r?.done){
+                this._endStream();
+                this._memoryId = r.memoryId;
+                if(r.niceName) this._heading = r.niceName;
+                this._removeLastMessage();
+                if(!markdown){
                     this._addServerErrorMessage();
                 }else{
-                    this._heading = value?.niceName;
-                    
-                    let markdown = value?.answer?.markdown;
-                    let action = this._getActionLabel(value?.answer?.action);
-                    if(markdown){
-                        this._addAssistantMessage(markdown + action);
-                    }
+                    this._addAssistantMessage(r.action ? markdown + this._getActionLabel(r.action) : markdown);
                 }
-            }
-            
-            this._inputIsBlocked = false;
-        }).catch((err) => {
-            document.body.style.cursor = 'default';
-            console.error(JSON.stringify(err));
-            this._removeLastMessage();
-            this._inputIsBlocked = false;
-            
-            
-            if(err.error.message){
-                this._addErrorMessage(err.error.message + msg('. See the Assistant log for details', { id: 'quarkus-chappie-error-see-log-suffix' }));
-            }else {
-                this._addServerErrorMessage();
+            }else if(r?.markdown){
+                markdown = markdown + r.markdown;
+                this._showStreamedMarkdown(markdown);
+                document.body.style.cursor = 'default';
             }
         });
     }
 
+    _showStreamedMarkdown(markdown){
+        // Tokens arrive faster than the message list renders markdown, so we show what we have once per frame
+        this._streamedMarkdown = markdown;
+        if(!this._streamRenderPending){
+            this._streamRenderPending = true;
+            requestAnimationFrame(() => {
+                this._streamRenderPending = false;
+                if(this._streamedMarkdown){
+                    this._removeLastMessage();
+                    this._addAssistantMessage(this._streamedMarkdown);
+                }
+            });
+        }
+    }
+
+    _endStream(){
+        document.body.style.cursor = 'default';
+        this._chatObserver = null;
+        this._streamedMarkdown = null;
+        this._inputIsBlocked = false;
+    }
+
+    _cancelStream(){
+        this._streamedMarkdown = null;
+        if(this._chatObserver){
+            this._chatObserver.cancel();
+            this._chatObserver = null;
+        }
+    }
+
     _handleChatMessageResponse(jsonRpcResponse){
         let r = jsonRpcResponse?.result;
         if(r){
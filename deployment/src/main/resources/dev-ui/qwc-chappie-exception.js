@@ -94,8 +94,11 @@ export class QwcChappieException extends observeState(QwcHotReloadElement) {
         
         // Subscribe to real-time exceptions
         this._observer = this.jsonRpc.streamException().onNext(jsonRpcResponse => { 
+            // A repeat of the same exception only updates the count, so keep the suggested fix
+            if(this._lastException?.fingerprint !== jsonRpcResponse.result?.fingerprint){
+                this._suggestedFix = null;
+            }
             this._lastException = jsonRpcResponse.result;
-            this._suggestedFix = null;
         });
         // Get the current last know exception
         this._checkLastException();
@@ -245,11 +248,20 @@ export class QwcChappieException extends observeState(QwcHotReloadElement) {
     
     _renderException(){
         return html`<div class="exception">
+                        ${this._renderOccurrences()}
                         <pre class="stacktrace">${this._lastException.decorateString}</pre>
                         <pre class="stacktrace">${this._lastException.stackTraceString}</pre>
                     </div>`;
     }
     
+    _renderOccurrences(){
+        if(this._lastException.occurrences > 1){
+            return html`<span class="text-secondary text-xs">
+                            ${msg(str`Thrown ${0} times`, { id: 'quarkus-chappie-exception-occurrences' })(this._lastException.occurrences)}
+                        </span>`;
+        }
+    }
+
     _renderButtons(){
         return html`<div class="buttons">
                         ${this._renderIDEButton()}
@@ -308,7 +320,12 @@ export class QwcChappieException extends observeState(QwcHotReloadElement) {
     
     _applyFix(){
         this.jsonRpc.applyFix().then(jsonRpcResponse => {
-            notifier.showInfoMessage(msg(str`Updated ${0}`, { id: 'quarkus-chappie-updated' })(jsonRpcResponse.result));
+            let r = jsonRpcResponse.result;
+            if(r?.error){
+                notifier.showErrorMessage(r.error);
+                return;
+            }
+            notifier.showInfoMessage(msg(str`Updated ${0}`, { id: 'quarkus-chappie-updated' })(r?.path));
             this._clearAIResponseDialog();
             super.forceRestart();
         });
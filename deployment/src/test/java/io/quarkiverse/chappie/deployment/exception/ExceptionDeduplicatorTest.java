@@ -0,0 +1,109 @@
+package io.quarkiverse.chappie.deployment.exception;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class ExceptionDeduplicatorTest {
+
+    private final LinkedBlockingQueue<ExceptionDeduplicator.Occurrence> flushed = new LinkedBlockingQueue<>();
+
+    @Test
+    void fingerprintLeavesOutTheMessage() {
+        assertEquals(ExceptionDeduplicator.fingerprint(thrown("a", 10), 5),
+                ExceptionDeduplicator.fingerprint(thrown("b", 10), 5));
+        assertNotEquals(ExceptionDeduplicator.fingerprint(thrown("a", 10), 5),
+                ExceptionDeduplicator.fingerprint(thrown("a", 11), 5));
+        assertNotEquals(ExceptionDeduplicator.fingerprint(thrown("a", 10), 5),
+                ExceptionDeduplicator.fingerprint(new IllegalArgumentException("a"), 5));
+    }
+
+    @Test
+    void fingerprintOnlyUsesTheTopFrames() {
+        IllegalStateException one = thrown("a", 10);
+        IllegalStateException other = thrown("a", 10);
+        StackTraceElement[] frames = other.getStackTrace();
+        frames[frames.length - 1] = new StackTraceElement("org.acme.Main", "main", "Main.java", 1);
+        other.setStackTrace(frames);
+
+        assertEquals(ExceptionDeduplicator.fingerprint(one, 1), ExceptionDeduplicator.fingerprint(other, 1));
+    }
+
+    @Test
+    void repeatsAreCounted() {
+        ExceptionDeduplicator deduplicator = deduplicator(Duration.ofHours(1));
+        ExceptionDeduplicator.Occurrence first = deduplicator.record(thrown("a", 10));
+        ExceptionDeduplicator.Occurrence repeat = deduplicator.record(thrown("b", 10));
+
+        assertTrue(first.latest());
+        assertTrue(first.publish());
+        assertFalse(repeat.latest());
+        assertFalse(repeat.publish());
+        assertSame(first.occurrences(), repeat.occurrences());
+        assertEquals(2, repeat.occurrences().get());
+    }
+
+    @Test
+    void repeatOfAnEarlierExceptionIsShownAgain() {
+        ExceptionDeduplicator deduplicator = deduplicator(Duration.ofHours(1));
+        ExceptionDeduplicator.Occurrence a = deduplicator.record(thrown("a", 10));
+        deduplicator.record(thrown("b", 11));
+        ExceptionDeduplicator.Occurrence again = deduplicator.record(thrown("a", 10));
+
+        assertTrue(again.latest());
+        assertTrue(again.publish());
+        assertEquals(a.fingerprint(), again.fingerprint());
+        assertEquals(2, again.occurrences().get());
+        assertFalse(deduplicator.record(thrown("a", 10)).latest());
+    }
+
+    @Test
+    void countIsFlushedOnceTheIntervalIsOver() throws InterruptedException {
+        ExceptionDeduplicator deduplicator = deduplicator(Duration.ofMillis(200));
+        deduplicator.record(thrown("a", 10));
+        deduplicator.record(thrown("a", 10));
+        deduplicator.record(thrown("a", 10));
+
+        ExceptionDeduplicator.Occurrence occurrence = flushed.poll(10, TimeUnit.SECONDS);
+        assertTrue(occurrence.publish());
+        assertFalse(occurrence.latest());
+        assertEquals(3, occurrence.occurrences().get());
+        // Nothing new to flush
+        assertNull(flushed.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void burstEndsAfterTheWindow() throws InterruptedException {
+        ExceptionDeduplicator deduplicator = new ExceptionDeduplicator(5, Duration.ofMillis(50), Duration.ofHours(1),
+                flushed::add);
+        deduplicator.record(thrown("a", 10));
+        Thread.sleep(100);
+        ExceptionDeduplicator.Occurrence next = deduplicator.record(thrown("a", 10));
+
+        assertTrue(next.latest());
+        assertEquals(1, next.occurrences().get());
+    }
+
+    private ExceptionDeduplicator deduplicator(Duration publishInterval) {
+        return new ExceptionDeduplicator(5, Duration.ofHours(1), publishInterval, flushed::add);
+    }
+
+    private static IllegalStateException thrown(String message, int line) {
+        IllegalStateException exception = new IllegalStateException(message);
+        exception.setStackTrace(new StackTraceElement[] {
+                new StackTraceElement("org.acme.Greeting", "hello", "Greeting.java", line),
+                new StackTraceElement("org.acme.GreetingResource", "get", "GreetingResource.java", 20),
+                new StackTraceElement("org.acme.Main", "run", "Main.java", 30)
+        });
+        return exception;
+    }
+}
@@ -0,0 +1,157 @@
+package io.quarkiverse.chappie.deployment.workspace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.quarkus.assistant.runtime.dev.Assistant;
+
+class WorkspaceBatchTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void resultsAreKeptByBatch() throws IOException {
+        Path first = source("First");
+        Path second = source("Second");
+        WorkspaceBatch batch = new WorkspaceBatch(new WorkspaceIndex(dir.resolve("index")), 2, 6000);
+
+        String firstBatch = run(batch, first);
+        String secondBatch = run(batch, second);
+
+        assertEquals(List.of(), batch.apply(secondBatch, List.of(first.toString())));
+        assertEquals(List.of(first.toString()), batch.apply(firstBatch, List.of(first.toString())));
+        assertEquals(List.of(second.toString()), batch.apply(secondBatch, List.of(second.toString())));
+        assertEquals("CLASS FIRST {}", Files.readString(first));
+        assertEquals("CLASS SECOND {}", Files.readString(second));
+    }
+
+    @Test
+    void discardOnlyDropsThatBatch() throws IOException {
+        Path first = source("First");
+        Path second = source("Second");
+        WorkspaceBatch batch = new WorkspaceBatch(new WorkspaceIndex(dir.resolve("index")), 2, 6000);
+        String firstBatch = run(batch, first);
+        String secondBatch = run(batch, second);
+
+        batch.discard(firstBatch);
+
+        assertEquals(List.of(), batch.apply(firstBatch, List.of(first.toString())));
+        assertEquals(List.of(second.toString()), batch.apply(secondBatch, List.of(second.toString())));
+        assertEquals(List.of(), batch.apply(null, List.of(second.toString())));
+    }
+
+    @Test
+    void appliedResultIsSkipped() throws IOException {
+        Path file = source("First");
+        WorkspaceBatch batch = new WorkspaceBatch(new WorkspaceIndex(dir.resolve("index")), 2, 6000);
+        batch.apply(run(batch, file), List.of(file.toString()));
+
+        List<Map<String, String>> progress = progress(batch, ACTION, file);
+
+        assertEquals(WorkspaceBatch.STATUS_SKIPPED, progress.get(0).get("status"));
+    }
+
+    @Test
+    void editedResultIsAskedForAgain() throws IOException {
+        Path file = source("First");
+        Path test = file.resolveSibling("FirstTest.java");
+        WorkspaceBatch batch = new WorkspaceBatch(new WorkspaceIndex(dir.resolve("index")), 2, 6000);
+        String first = progress(batch, TEST_ACTION, file).get(0).get("batch");
+        batch.apply(first, List.of(file.toString()));
+        assertEquals(WorkspaceBatch.STATUS_SKIPPED, progress(batch, TEST_ACTION, file).get(0).get("status"));
+
+        Files.writeString(test, "class FirstTest { void edited() {} }");
+        Map<String, String> result = progress(batch, TEST_ACTION, file).stream()
+                .filter(m -> WorkspaceBatch.STATUS_DONE.equals(m.get("status")))
+                .findFirst().orElseThrow();
+
+        assertEquals("CLASS FIRST {}", result.get("content"));
+        assertEquals("true", result.get("replaces"));
+    }
+
+    @Test
+    void findFilesInAPackage() throws IOException {
+        Path java = dir.resolve("src/main/java");
+        Path service = write(java.resolve("org/acme/service/Service.java"));
+        Path nested = write(java.resolve("org/acme/service/impl/Impl.java"));
+        write(java.resolve("org/acme/other/Other.java"));
+        write(java.resolve("org/acme/service/notes.txt"));
+
+        assertEquals(List.of(service, nested), WorkspaceBatch.findFiles("org.acme.service", List.of(dir)));
+        assertEquals(List.of(nested), WorkspaceBatch.findFiles(nested.getParent().toString(), List.of(dir)));
+        assertTrue(WorkspaceBatch.findFiles("not a package", List.of(dir)).isEmpty());
+        assertTrue(WorkspaceBatch.findFiles(" ", List.of(dir)).isEmpty());
+    }
+
+    private String run(WorkspaceBatch batch, Path file) {
+        List<Map<String, String>> progress = progress(batch, ACTION, file);
+        Map<String, String> done = progress.get(progress.size() - 1);
+        assertEquals("true", done.get("done"));
+        assertTrue(progress.stream().allMatch(m -> done.get("batch").equals(m.get("batch"))));
+        return done.get("batch");
+    }
+
+    private static List<Map<String, String>> progress(WorkspaceBatch batch, WorkspaceBatch.Action action, Path file) {
+        return batch.run(new UpperCaseAssistant(), action, List.of(file))
+                .collect().asList().await().atMost(Duration.ofSeconds(10));
+    }
+
+    private Path source(String name) throws IOException {
+        Path file = dir.resolve("src/main/java/org/acme/" + name + ".java");
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, "class " + name + " {}");
+    }
+
+    private static Path write(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, "");
+    }
+
+    record Answer(String path, String content) {
+    }
+
+    private static final WorkspaceBatch.Action ACTION = new WorkspaceBatch.Action("upper", "system", "user",
+            Answer.class, answer -> ((Answer) answer).content(), path -> path);
+    private static final WorkspaceBatch.Action TEST_ACTION = new WorkspaceBatch.Action("test", "system", "user",
+            Answer.class, answer -> ((Answer) answer).content(),
+            path -> path.resolveSibling(path.getFileName().toString().replace(".java", "Test.java")));
+
+    private static class UpperCaseAssistant implements Assistant {
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public <T> CompletionStage<T> assist(Optional<String> systemMessageTemplate, String userMessageTemplate,
+                Map<String, String> variables, List<Path> paths, Class<?> responseType) {
+            return CompletableFuture.completedFuture(
+                    (T) new Answer(paths.get(0).toString(), variables.get("content").toUpperCase()));
+        }
+
+        @Override
+        public String getMemoryId() {
+            return null;
+        }
+
+        @Override
+        public String getChatPath() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package io.quarkiverse.chappie.deployment.workspace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WorkspaceIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void resultIsAppliedOnceTheFileContainsIt() {
+        WorkspaceIndex index = new WorkspaceIndex(dir);
+        Path file = dir.resolve("Hello.java");
+        index.put("javadoc", file, "fingerprint", "class Hello {}", "/** Hello */ class Hello {}");
+
+        assertFalse(index.isApplied("javadoc", file, "fingerprint", "class Hello {}", "class Hello {}"));
+        assertTrue(new WorkspaceIndex(dir).isApplied("javadoc", file, "fingerprint", "/** Hello */ class Hello {}",
+                "/** Hello */ class Hello {}"));
+    }
+
+    @Test
+    void resultInAnotherFileIsAppliedUntilItIsEdited() {
+        WorkspaceIndex index = new WorkspaceIndex(dir);
+        Path file = dir.resolve("Hello.java");
+        index.put("test", file, "fingerprint", "class Hello {}", "class HelloTest {}");
+
+        assertTrue(index.isApplied("test", file, "fingerprint", "class Hello {}", "class HelloTest {}"));
+        assertFalse(index.isApplied("test", file, "fingerprint", "class Hello {}", "class HelloTest { void t() {} }"));
+        assertFalse(index.isApplied("test", file, "fingerprint", "class Hello {}", null));
+    }
+
+    @Test
+    void changesMeanAskingAgain() {
+        WorkspaceIndex index = new WorkspaceIndex(dir);
+        Path file = dir.resolve("Hello.java");
+        index.put("test", file, "fingerprint", "class Hello {}", "class HelloTest {}");
+
+        assertFalse(index.isApplied("test", file, "fingerprint", "class Hello { }", "class HelloTest {}"));
+        assertFalse(index.isApplied("test", file, "other", "class Hello {}", "class HelloTest {}"));
+        assertFalse(index.isApplied("javadoc", file, "fingerprint", "class Hello {}", "class HelloTest {}"));
+        assertFalse(index.isApplied("test", dir.resolve("Other.java"), "fingerprint", "class Hello {}",
+                "class HelloTest {}"));
+        assertFalse(index.isApplied("test", file, "fingerprint", null, "class HelloTest {}"));
+    }
+
+    @Test
+    void fingerprintDependsOnThePrompts() {
+        String fingerprint = WorkspaceIndex.fingerprint(null, "system", "user", String.class);
+
+        assertEquals(fingerprint, WorkspaceIndex.fingerprint(null, "system", "user", String.class));
+        assertNotEquals(fingerprint, WorkspaceIndex.fingerprint(null, "system", "other", String.class));
+        assertNotEquals(fingerprint, WorkspaceIndex.fingerprint(null, "system", "user", Object.class));
+    }
+}
@@ -0,0 +1,62 @@
+package io.quarkiverse.chappie.runtime.dev;
+
+import java.io.OutputStream;
+import java.net.http.HttpRequest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects written bytes in chunks and hands those chunks to the HTTP client as they are, so a large payload is never
+ * copied into one contiguous array.
+ */
+final class ByteChunksOutputStream extends OutputStream {
+    private static final int FIRST_CHUNK_SIZE = 8 * 1024;
+    private static final int MAX_CHUNK_SIZE = 1024 * 1024;
+
+    private final List<byte[]> chunks = new ArrayList<>();
+    private byte[] current = new byte[FIRST_CHUNK_SIZE];
+    private int position = 0;
+    private long size = 0;
+
+    @Override
+    public void write(int b) {
+        if (position == current.length) {
+            nextChunk();
+        }
+        current[position++] = (byte) b;
+        size++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        while (length > 0) {
+            if (position == current.length) {
+                nextChunk();
+            }
+            int n = Math.min(length, current.length - position);
+            System.arraycopy(bytes, offset, current, position, n);
+            position += n;
+            offset += n;
+            length -= n;
+            size += n;
+        }
+    }
+
+    HttpRequest.BodyPublisher toBodyPublisher() {
+        List<byte[]> all = new ArrayList<>(chunks);
+        if (position > 0) {
+            all.add(position == current.length ? current : Arrays.copyOf(current, position));
+        }
+        if (size == 0) {
+            return HttpRequest.BodyPublishers.noBody();
+        }
+        return HttpRequest.BodyPublishers.fromPublisher(HttpRequest.BodyPublishers.ofByteArrays(all), size);
+    }
+
+    private void nextChunk() {
+        chunks.add(current);
+        current = new byte[Math.min(current.length * 2, MAX_CHUNK_SIZE)];
+        position = 0;
+    }
+}
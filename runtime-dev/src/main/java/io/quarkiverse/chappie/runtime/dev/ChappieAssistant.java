@@ -1,33 +1,96 @@
 package io.quarkiverse.chappie.runtime.dev;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.lang.invoke.MethodHandle;
+import java.net.ConnectException;
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import io.quarkus.assistant.runtime.dev.Assistant;
 import io.quarkus.dev.console.DevConsoleManager;
 import io.quarkus.logging.Log;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.subscription.MultiEmitter;
 
 public class ChappieAssistant implements Assistant {
 
-    private String baseUrl = null;
-    private String memoryId = null;
-    private String title = null;
+    private volatile String baseUrl = null;
+    // Completes once the server at baseUrl answers. Requests made while the server is starting wait on it
+    private volatile CompletableFuture<Void> readiness = CompletableFuture.completedFuture(null);
+    private final ChappieSessions sessions = new ChappieSessions(MAX_SESSIONS, SESSION_MAX_IDLE);
+
+    private final ChappieResponseCache responseCache = new ChappieResponseCache(CACHE_DIR);
+    private final ConcurrentHashMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    // The artifact of a class does not change, so only ask the deployment side once per caller. Callers without a
+    // known artifact are not remembered, the deployment side may not be able to answer yet
+    private final ClassValue<Optional<String>> callerArtifacts = new ClassValue<>() {
+        @Override
+        protected Optional<String> computeValue(Class<?> caller) {
+            return Optional.ofNullable(getArtifactFromCallerClass(caller));
+        }
+    };
+    // Identifies the provider, model and other server settings the answers depend on
+    private volatile String configuration;
+
+    private volatile Duration connectTimeout = Duration.ofSeconds(DEFAULT_CONNECT_TIMEOUT_SECONDS);
+    private volatile Duration assistTimeout = Duration.ofSeconds(DEFAULT_ASSIST_TIMEOUT_SECONDS);
+    private volatile Duration requestTimeout = Duration.ofSeconds(DEFAULT_REQUEST_TIMEOUT_SECONDS);
+    private volatile int retries = DEFAULT_RETRIES;
+    private volatile int tokenBudget = DEFAULT_TOKEN_BUDGET;
+    private final ChappieCircuitBreaker circuitBreaker = new ChappieCircuitBreaker(CIRCUIT_BREAKER_THRESHOLD,
+            () -> {
+                String url = this.baseUrl;
+                return url == null ? CompletableFuture.completedFuture(false) : probe(url, PROBE_TIMEOUT);
+            });
+
+    private final Executor configuredExecutor;
+    private ExecutorService ownedExecutor;
+    private volatile HttpClient httpClient;
+
+    public ChappieAssistant() {
+        this(null);
+    }
+
+    /**
+     * @param executor the executor the HTTP client should use, or null to use a default one owned by this assistant
+     */
+    public ChappieAssistant(Executor executor) {
+        this.configuredExecutor = executor;
+    }
 
     @Override
     public boolean isAvailable() {
-        return this.baseUrl != null;
+        CompletableFuture<Void> current = this.readiness;
+        return this.baseUrl != null && current.isDone() && !current.isCompletedExceptionally();
     }
 
     @Override
@@ -46,42 +109,200 @@ public class ChappieAssistant implements Assistant {
             Class<?> responseType,
             boolean unwrap,
             boolean forceNewSession) {
+        return assist(systemMessageTemplate, userMessageTemplate, variables, paths, responseType, null, unwrap,
+                forceNewSession);
+    }
 
-        if (!isAvailable()) {
-            return CompletableFuture.failedFuture(new IllegalStateException("Chappie server is not configured"));
+    /**
+     * @param sessionKey the conversation to use, or null to use a conversation per calling extension
+     */
+    public <T> CompletionStage<T> assist(Optional<String> systemMessageTemplate,
+            String userMessageTemplate,
+            Map<String, String> variables,
+            List<Path> paths,
+            Class<?> responseType,
+            String sessionKey,
+            boolean unwrap,
+            boolean forceNewSession) {
+
+        if (!hasServer()) {
+            return CompletableFuture.failedFuture(notConfigured());
         }
 
-        Map<String, String> enhancedVariables = new HashMap<>(variables);
+        Map<String, String> requestVariables = new HashMap<>(variables);
+        boolean bypassCache = requestVariables.remove(VAR_NO_CACHE) != null;
+        String focus = requestVariables.remove(VAR_FOCUS);
         String extension = getExtension();
         if (extension != null && !variables.containsKey("extension")) {
-            enhancedVariables.put("extension", extension);
+            requestVariables.put("extension", extension);
+        }
+        ChappieContextPacker.Packed packed = ChappieContextPacker.pack(systemMessageTemplate.orElse(""),
+                userMessageTemplate, requestVariables, paths, focus, tokenBudget);
+        Map<String, String> enhancedVariables = packed.variables();
+        List<Path> contextPaths = packed.paths();
+
+        ChappieSession session = getSession(sessionKey, extension, forceNewSession);
+
+        if (!forceNewSession) {
+            return whenReady(() -> sendAssist(systemMessageTemplate, userMessageTemplate, enhancedVariables,
+                    contextPaths, responseType, session, unwrap, null));
         }
 
-        if (forceNewSession) {
-            this.clearMemory();
+        // Answers that do not depend on an earlier conversation can be reused, and shared with callers asking the same
+        // Only hash the content of the files when the answer may be cached
+        boolean cacheable = !bypassCache && responseCache.isEnabled();
+        String requestKey = ChappieResponseCache.key(this.configuration, systemMessageTemplate.orElse(""),
+                userMessageTemplate, enhancedVariables, contextPaths, responseType == null ? Map.class : responseType,
+                unwrap, cacheable);
+        String cacheKey = cacheable ? requestKey : null;
+        if (cacheKey != null) {
+            try {
+                ChappieResponseCache.Entry cached = responseCache.get(cacheKey);
+                if (cached != null) {
+                    // The conversation of the cached answer may be gone, so this one starts without
+                    return CompletableFuture.completedFuture((T) toAnswer(null,
+                            new ByteArrayInputStream(cached.body()), responseType == null ? Map.class : responseType,
+                            session, unwrap));
+                }
+            } catch (RuntimeException ex) {
+                Log.debug("Could not use the cached answer", ex);
+            }
         }
 
+        return coalesce("assist:" + requestKey, session, () -> whenReady(() -> sendAssist(systemMessageTemplate,
+                userMessageTemplate, enhancedVariables, contextPaths, responseType, session, unwrap, cacheKey)));
+    }
+
+    /**
+     * Make the context of a request smaller, the way {@link #assist} does. For callers that need to know what is sent,
+     * like to put what was left out back in the answer. Passed to assist, the packed context is sent as it is.
+     */
+    public ChappieContextPacker.Packed pack(Optional<String> systemMessageTemplate, String userMessageTemplate,
+            Map<String, String> variables, List<Path> paths) {
+        Map<String, String> requestVariables = new HashMap<>(variables);
+        String focus = requestVariables.remove(VAR_FOCUS);
+        return ChappieContextPacker.pack(systemMessageTemplate.orElse(""), userMessageTemplate, requestVariables, paths,
+                focus, tokenBudget);
+    }
+
+    /**
+     * Send the request, unless the same request is in flight already. Then the caller gets the answer of that one, and
+     * its session continues the conversation of that one. Every caller gets its own future, so one caller cancelling
+     * does not affect the others.
+     *
+     * @param session the session the request updates, or null when it does not use one
+     */
+    <T> CompletionStage<T> coalesce(String key, ChappieSession session, Supplier<CompletionStage<T>> request) {
+        InFlight[] created = new InFlight[1];
+        // Joining and leaving happen while the key is locked, so nobody joins a request that is being cancelled
+        InFlight flight = inFlight.compute(key, (k, existing) -> {
+            if (existing != null) {
+                existing.callers().incrementAndGet();
+                return existing;
+            }
+            created[0] = new InFlight(new CompletableFuture<>(), session, new AtomicInteger(1));
+            return created[0];
+        });
+        CompletableFuture<Object> caller = flight.shared().thenApply(answer -> {
+            share(flight.session(), session);
+            return answer;
+        });
+        caller.whenComplete((answer, failure) -> {
+            if (caller.isCancelled()) {
+                leave(key, flight);
+            }
+        });
+        if (created[0] != null) {
+            flight.shared().whenComplete((answer, failure) -> inFlight.remove(key, flight));
+            try {
+                forward((CompletionStage<Object>) request.get(), flight.shared());
+            } catch (RuntimeException ex) {
+                flight.shared().completeExceptionally(ex);
+            }
+        }
+        return (CompletionStage<T>) caller;
+    }
+
+    /**
+     * A caller cancelled, the request is cancelled when it was the last one waiting for it
+     */
+    private void leave(String key, InFlight flight) {
+        boolean[] abandoned = new boolean[1];
+        inFlight.compute(key, (k, current) -> {
+            if (flight.callers().decrementAndGet() > 0) {
+                return current;
+            }
+            abandoned[0] = true;
+            return current == flight ? null : current;
+        });
+        if (abandoned[0]) {
+            flight.shared().cancel(true);
+        }
+    }
+
+    /**
+     * Continue the conversation of the request that answered in the session of a caller that joined it
+     */
+    private void share(ChappieSession from, ChappieSession to) {
+        if (from == null || to == null || from == to) {
+            return;
+        }
+        if (from.hasMemoryId()) {
+            to.setMemoryId(from.getMemoryId());
+        }
+        to.setTitle(from.getTitle());
+        sessions.markMostRecent(to);
+    }
+
+    /**
+     * A request several callers wait for. It is cancelled when all of them cancelled.
+     *
+     * @param session the session of the caller that sent the request
+     */
+    private record InFlight(CompletableFuture<Object> shared, ChappieSession session, AtomicInteger callers) {
+    }
+
+    private <T> CompletionStage<T> sendAssist(Optional<String> systemMessageTemplate,
+            String userMessageTemplate,
+            Map<String, String> enhancedVariables,
+            List<Path> paths,
+            Class<?> responseType,
+            ChappieSession session,
+            boolean unwrap,
+            String cacheKey) {
         try {
 
             if (responseType == null)
                 responseType = Map.class;
 
-            String jsonPayload = JsonObjectCreator.getWorkspaceInput(systemMessageTemplate.orElse(""), userMessageTemplate,
-                    enhancedVariables, paths, responseType);
+            HttpRequest.BodyPublisher body = JsonObjectCreator.getWorkspaceInputBody(systemMessageTemplate.orElse(""),
+                    userMessageTemplate, enhancedVariables, paths, responseType);
 
             HttpRequest.Builder builder = HttpRequest.newBuilder()
                     .uri(URI.create(baseUrl + "/api/assist"))
+                    .timeout(assistTimeout)
                     .header("Content-Type", "application/json")
                     .header("Accept", "application/json");
 
-            if (this.memoryId != null && !this.memoryId.isBlank()) {
-                builder = builder.header(HEADER_MEMORY_ID, this.memoryId);
+            // A new conversation has no memoryId yet, so the server can only be told to stop by this id
+            String requestId = UUID.randomUUID().toString();
+            builder = builder.header(HEADER_REQUEST_ID, requestId);
+            if (session.hasMemoryId()) {
+                builder = builder.header(HEADER_MEMORY_ID, session.getMemoryId());
             }
 
-            HttpRequest assistRequest = builder.POST(HttpRequest.BodyPublishers.ofString(jsonPayload, StandardCharsets.UTF_8))
-                    .build();
+            HttpRequest assistRequest = builder.POST(body).build();
 
-            return (CompletionStage<T>) getAny(assistRequest, responseType, unwrap);
+            CompletableFuture<T> answer = (CompletableFuture<T>) getAny(assistRequest, responseType, session, unwrap,
+                    cacheKey);
+            String memoryId = session.getMemoryId();
+            // The exchange of the HTTP client fails with the cancellation, rather than being cancelled itself
+            answer.whenComplete((a, failure) -> {
+                if (unwrap(failure) instanceof CancellationException) {
+                    cancelOnServer(requestId, memoryId);
+                }
+            });
+            return answer;
         } catch (Exception ex) {
             CompletableFuture<T> failedFuture = new CompletableFuture<>();
             failedFuture.completeExceptionally(ex);
@@ -89,57 +310,241 @@ public class ChappieAssistant implements Assistant {
         }
     }
 
-    public CompletionStage<List<Map>> getChats() {
-        if (!isAvailable()) {
-            return CompletableFuture.failedFuture(new IllegalStateException("Chappie server is not configured"));
+    /**
+     * Streaming variant of assist. The chappie server streams the answer as Server-Sent Events, and every event is
+     * published as a piece of markdown as soon as it arrives. If the server does not support streaming, the full
+     * answer is published as a single item once it is available.
+     */
+    public Multi<String> assistStream(Optional<String> systemMessageTemplate,
+            String userMessageTemplate,
+            Map<String, String> variables,
+            List<Path> paths,
+            Class<?> responseType,
+            String sessionKey,
+            boolean forceNewSession) {
+
+        if (!hasServer()) {
+            return Multi.createFrom().failure(notConfigured());
         }
-        HttpRequest r = HttpRequest.newBuilder().GET()
-                .uri(URI.create(baseUrl + "/api/store/chats"))
-                .header("Accept", "application/json")
-                .build();
 
-        return getArray(r);
+        Map<String, String> requestVariables = new HashMap<>(variables);
+        String focus = requestVariables.remove(VAR_FOCUS);
+        String extension = getExtension();
+        if (extension != null && !variables.containsKey("extension")) {
+            requestVariables.put("extension", extension);
+        }
+        ChappieContextPacker.Packed packed = ChappieContextPacker.pack(systemMessageTemplate.orElse(""),
+                userMessageTemplate, requestVariables, paths, focus, tokenBudget);
+
+        ChappieSession session = getSession(sessionKey, extension, forceNewSession);
+        session.setAction(null);
+
+        Class<?> type = responseType == null ? Map.class : responseType;
+
+        return Multi.createFrom().emitter(emitter -> awaitReady().whenComplete((ready, failure) -> {
+            if (failure != null) {
+                emitter.fail(failure);
+            } else {
+                openStream(systemMessageTemplate, userMessageTemplate, packed.variables(), packed.paths(), type, session,
+                        emitter);
+            }
+        }));
     }
 
-    public CompletionStage<Map> getMostRecentChatMessages() {
-        if (!isAvailable()) {
-            return CompletableFuture.failedFuture(new IllegalStateException("Chappie server is not configured"));
+    private void openStream(Optional<String> systemMessageTemplate,
+            String userMessageTemplate,
+            Map<String, String> enhancedVariables,
+            List<Path> paths,
+            Class<?> type,
+            ChappieSession session,
+            MultiEmitter<? super String> emitter) {
+        try {
+            // A streamed answer is markdown as it is generated, so we do not ask for JSON matching the response type
+            HttpRequest.BodyPublisher body = JsonObjectCreator.getWorkspaceInputBody(systemMessageTemplate.orElse(""),
+                    userMessageTemplate, enhancedVariables, paths, null);
+
+            HttpRequest.Builder builder = HttpRequest.newBuilder()
+                    .uri(URI.create(baseUrl + "/api/assist/stream"))
+                    .timeout(assistTimeout)
+                    .header("Content-Type", "application/json")
+                    .header("Accept", "text/event-stream");
+
+            String requestId = UUID.randomUUID().toString();
+            builder = builder.header(HEADER_REQUEST_ID, requestId);
+            if (session.hasMemoryId()) {
+                builder = builder.header(HEADER_MEMORY_ID, session.getMemoryId());
+            }
+
+            HttpRequest streamRequest = builder.POST(body).build();
+
+            ChappieEventStream events = new ChappieEventStream(new ChappieEventStream.Handler() {
+                @Override
+                public boolean onEvent(String event, String data) {
+                    return dispatchEvent(event, data, session, emitter);
+                }
+
+                @Override
+                public void onEnd(Throwable failure) {
+                    if (failure == null) {
+                        emitter.complete();
+                    } else {
+                        emitter.fail(failure);
+                    }
+                }
+            });
+
+            // When the subscriber goes away, stop reading and abort the exchange
+            AtomicReference<Future<?>> pending = new AtomicReference<>();
+            emitter.onTermination(() -> {
+                events.cancel();
+                Future<?> exchange = pending.get();
+                if (exchange != null) {
+                    exchange.cancel(true);
+                }
+                if (emitter.isCancelled()) {
+                    cancelOnServer(requestId, session.getMemoryId());
+                }
+            });
+
+            // The events are read as the lines arrive, only a successful answer is a stream of events
+            HttpResponse.BodyHandler<Void> bodyHandler = info -> {
+                if (info.statusCode() != 200) {
+                    return HttpResponse.BodySubscribers.discarding();
+                }
+                info.headers().firstValue(HEADER_MEMORY_ID).ifPresent(session::setMemoryId);
+                sessions.markMostRecent(session);
+                return HttpResponse.BodySubscribers.fromLineSubscriber(events, ignored -> null, StandardCharsets.UTF_8,
+                        null);
+            };
+
+            CompletableFuture<HttpResponse<Void>> exchange = send(streamRequest, bodyHandler);
+            pending.set(exchange);
+            if (emitter.isCancelled()) {
+                exchange.cancel(true);
+                return;
+            }
+            exchange
+                    .thenAccept(response -> {
+                        int status = response.statusCode();
+                        if (status == 404 || status == 405) {
+                            // Older chappie servers do not stream, so publish the full answer in one go
+                            CompletableFuture<Map<String, ChappieEnvelope<?>>> answer = this
+                                    .<Map<String, ChappieEnvelope<?>>> sendAssist(systemMessageTemplate,
+                                            userMessageTemplate, enhancedVariables, paths, type, session, false, null)
+                                    .toCompletableFuture();
+                            pending.set(answer);
+                            answer
+                                    .thenAccept(m -> {
+                                        for (ChappieEnvelope<?> envelope : m.values()) {
+                                            session.setAction(JsonObjectCreator.getTextField(envelope.answer(), "action"));
+                                            emitter.emit(JsonObjectCreator.getMarkdown(envelope.answer()));
+                                        }
+                                        emitter.complete();
+                                    })
+                                    .exceptionally(t -> {
+                                        emitter.fail(t);
+                                        return null;
+                                    });
+                        } else if (status != 200) {
+                            emitter.fail(new ChappieHttpException(status, "Failed with HTTP error code : " + status));
+                        }
+                    })
+                    .exceptionally(t -> {
+                        emitter.fail(t);
+                        return null;
+                    });
+        } catch (Exception ex) {
+            emitter.fail(ex);
         }
-        if (this.memoryId != null && !this.memoryId.isBlank()) {
-            return getChatMessages(this.memoryId);
-        } else {
+    }
+
+    /**
+     * Unnamed events carry markdown, a niceName event carries the title, an action event carries a suggested MCP tool
+     * and an error event fails the stream.
+     */
+    private boolean dispatchEvent(String event, String data, ChappieSession session,
+            MultiEmitter<? super String> emitter) {
+        if (event == null || event.equals("token") || event.equals("message")) {
+            emitter.emit(data);
+        } else if (event.equals("niceName")) {
+            session.setTitle(data);
+        } else if (event.equals("action")) {
+            session.setAction(data);
+        } else if (event.equals("error")) {
+            emitter.fail(new RuntimeException(data));
+            return false;
+        }
+        return true;
+    }
+
+    public CompletionStage<List<Map>> getChats() {
+        return whenReady(() -> withRetries(() -> {
             HttpRequest r = HttpRequest.newBuilder().GET()
-                    .uri(URI.create(baseUrl + "/api/store/most-recent"))
+                    .uri(URI.create(baseUrl + "/api/store/chats"))
+                    .timeout(requestTimeout)
                     .header("Accept", "application/json")
                     .build();
 
-            return getObject(r);
-        }
+            return getArray(r);
+        }));
     }
 
-    public CompletionStage<Map> getChatMessages(String memoryId) {
-        this.memoryId = memoryId;
-
-        if (!isAvailable()) {
-            return CompletableFuture.failedFuture(new IllegalStateException("Chappie server is not configured"));
+    public CompletionStage<Map> getMostRecentChatMessages() {
+        if (!hasServer()) {
+            return CompletableFuture.failedFuture(notConfigured());
         }
-        HttpRequest r = HttpRequest.newBuilder().GET()
-                .uri(URI.create(baseUrl + "/api/store/messages/" + memoryId))
-                .header("Accept", "application/json")
-                .build();
+        ChappieSession chat = sessions.get(CHAT_SESSION);
+        if (!chat.hasMemoryId()) {
+            // Continue the conversation another caller (like the exception page) had last
+            ChappieSession mostRecent = sessions.mostRecent();
+            if (mostRecent != null && mostRecent != chat && mostRecent.hasMemoryId()) {
+                chat.setMemoryId(mostRecent.getMemoryId());
+                chat.setTitle(mostRecent.getTitle());
+            }
+        }
+        if (chat.hasMemoryId()) {
+            return getChatMessages(chat.getMemoryId());
+        } else {
+            return whenReady(() -> withRetries(() -> {
+                HttpRequest r = HttpRequest.newBuilder().GET()
+                        .uri(URI.create(baseUrl + "/api/store/most-recent"))
+                        .timeout(requestTimeout)
+                        .header("Accept", "application/json")
+                        .build();
 
-        return getObject(r);
+                return getObject(r);
+            }));
+        }
     }
 
-    public void deleteChat(String memoryId) {
-        if (isAvailable()) {
-            HttpRequest r = HttpRequest.newBuilder().DELETE()
+    public CompletionStage<Map> getChatMessages(String memoryId) {
+        sessions.get(CHAT_SESSION).setMemoryId(memoryId);
+
+        return whenReady(() -> withRetries(() -> {
+            HttpRequest r = HttpRequest.newBuilder().GET()
                     .uri(URI.create(baseUrl + "/api/store/messages/" + memoryId))
+                    .timeout(requestTimeout)
                     .header("Accept", "application/json")
                     .build();
 
-            HttpClient client = HttpClient.newHttpClient();
-            client.sendAsync(r, HttpResponse.BodyHandlers.ofString());
+            return getObject(r);
+        }));
+    }
+
+    public void deleteChat(String memoryId) {
+        if (memoryId != null && memoryId.equals(sessions.get(CHAT_SESSION).getMemoryId())) {
+            clearMemory();
+        }
+        if (hasServer()) {
+            whenReady(() -> {
+                HttpRequest r = HttpRequest.newBuilder().DELETE()
+                        .uri(URI.create(baseUrl + "/api/store/messages/" + memoryId))
+                        .timeout(requestTimeout)
+                        .header("Accept", "application/json")
+                        .build();
+
+                return send(r, HttpResponse.BodyHandlers.discarding());
+            });
         }
     }
 
@@ -150,20 +555,24 @@ public class ChappieAssistant implements Assistant {
             if (maxResults != null) {
                 params.put("maxResults", maxResults);
             }
-            if (extension == null) {
+            if (extension != null) {
                 params.put("extension", extension);
             }
             String jsonPayload = JsonObjectCreator.toJsonString(params);
-            Log.info("Search payload: " + jsonPayload);
+            Log.debugf("Search payload: %s", jsonPayload);
 
-            HttpRequest searchRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(baseUrl + "/api/search"))
-                    .header("Content-Type", "application/json")
-                    .header("Accept", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(jsonPayload, StandardCharsets.UTF_8))
-                    .build();
+            // Searching does not change anything on the server, so it is safe to try again
+            return coalesce("search:" + jsonPayload, null, () -> whenReady(() -> withRetries(() -> {
+                HttpRequest searchRequest = HttpRequest.newBuilder()
+                        .uri(URI.create(baseUrl + "/api/search"))
+                        .timeout(requestTimeout)
+                        .header("Content-Type", "application/json")
+                        .header("Accept", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(jsonPayload, StandardCharsets.UTF_8))
+                        .build();
 
-            return getObject(searchRequest);
+                return getObject(searchRequest);
+            })));
         } catch (Exception ex) {
             CompletableFuture<Map> failedFuture = new CompletableFuture<>();
             failedFuture.completeExceptionally(ex);
@@ -176,18 +585,370 @@ public class ChappieAssistant implements Assistant {
         return baseUrl;
     }
 
-    public void setBaseUrl(String baseUrl) {
+    /**
+     * Identifies the provider, model and other server settings the answers depend on, or null when not known
+     */
+    public String getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Set the url of a server that is ready to answer, or null when there is no server anymore. Requests waiting for
+     * the server to start continue, or fail if the url is cleared.
+     */
+    public synchronized void setBaseUrl(String baseUrl) {
+        this.baseUrl = baseUrl;
+        this.circuitBreaker.reset();
+        if (baseUrl == null) {
+            this.readiness.completeExceptionally(notConfigured());
+        } else if (!this.readiness.complete(null) && this.readiness.isCompletedExceptionally()) {
+            this.readiness = CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Apply the settings of the server manager, see the SETTING_ keys
+     */
+    public void configure(Map<String, String> settings) {
+        this.configuration = settings.get(SETTING_CONFIGURATION);
+        this.responseCache.configure(Boolean.parseBoolean(settings.get(SETTING_CACHE)),
+                Duration.ofMinutes(parseInt(settings.get(SETTING_CACHE_TTL_MINUTES), DEFAULT_CACHE_TTL_MINUTES)),
+                parseInt(settings.get(SETTING_CACHE_MAX_ENTRIES), DEFAULT_CACHE_MAX_ENTRIES));
+        this.assistTimeout = Duration.ofSeconds(
+                parseInt(settings.get(SETTING_ASSIST_TIMEOUT_SECONDS), DEFAULT_ASSIST_TIMEOUT_SECONDS));
+        this.requestTimeout = Duration.ofSeconds(
+                parseInt(settings.get(SETTING_REQUEST_TIMEOUT_SECONDS), DEFAULT_REQUEST_TIMEOUT_SECONDS));
+        this.retries = Math.max(0, parseInt(settings.get(SETTING_RETRIES), DEFAULT_RETRIES));
+        this.tokenBudget = parseInt(settings.get(SETTING_TOKEN_BUDGET), DEFAULT_TOKEN_BUDGET);
+        Duration connect = Duration.ofSeconds(
+                parseInt(settings.get(SETTING_CONNECT_TIMEOUT_SECONDS), DEFAULT_CONNECT_TIMEOUT_SECONDS));
+        if (!connect.equals(this.connectTimeout)) {
+            HttpClient replaced;
+            synchronized (this) {
+                // The connect timeout belongs to the client, so the next request builds a new one
+                this.connectTimeout = connect;
+                replaced = this.httpClient;
+                this.httpClient = null;
+            }
+            release(replaced);
+        }
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * The server at this url is starting, the url is null when it is not known yet. Until {@link #markReady()} or
+     * {@link #markFailed(Throwable)} is called the assistant is not available, and requests made in the meantime wait for
+     * the server instead of failing.
+     */
+    public synchronized void starting(String baseUrl) {
         this.baseUrl = baseUrl;
+        this.circuitBreaker.reset();
+        if (this.readiness.isDone()) {
+            this.readiness = new CompletableFuture<>();
+        }
+    }
+
+    /**
+     * The server that is starting now answers requests
+     */
+    public void markReady() {
+        this.circuitBreaker.reset();
+        this.readiness.complete(null);
+    }
+
+    /**
+     * The server that is starting will not become ready. Waiting requests fail with this cause.
+     */
+    public void markFailed(Throwable cause) {
+        this.readiness.completeExceptionally(cause);
+    }
+
+    /**
+     * Check if a server answers on this url. Any answer other than 503 means the server is listening, a server without
+     * health checks answers 404.
+     */
+    CompletionStage<Boolean> probe(String url, Duration timeout) {
+        try {
+            HttpRequest r = HttpRequest.newBuilder().GET()
+                    .uri(URI.create(url + "/q/health/ready"))
+                    .timeout(timeout)
+                    .build();
+
+            return httpClient().sendAsync(r, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, failure) -> failure == null && response.statusCode() != 503);
+        } catch (Exception ex) {
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
+    /**
+     * Ask the server to reload the tools of its MCP servers. Completes with false when the server can not do that.
+     */
+    CompletionStage<Boolean> refreshMcp() {
+        return whenReady(() -> {
+            HttpRequest r = HttpRequest.newBuilder()
+                    .uri(URI.create(baseUrl + "/api/admin/mcp/refresh"))
+                    .timeout(requestTimeout)
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+
+            return send(r, HttpResponse.BodyHandlers.discarding())
+                    .thenApply(response -> response.statusCode() / 100 == 2);
+        });
+    }
+
+    /**
+     * There is a server, or one is starting
+     */
+    private boolean hasServer() {
+        return this.baseUrl != null || !this.readiness.isDone();
+    }
+
+    private CompletableFuture<Void> awaitReady() {
+        CompletableFuture<Void> current = this.readiness;
+        if (this.baseUrl == null && current.isDone()) {
+            return CompletableFuture.failedFuture(notConfigured());
+        }
+        return current;
+    }
+
+    /**
+     * Run the request now if the server is ready, or as soon as it is when it is still starting
+     */
+    private <T> CompletionStage<T> whenReady(Supplier<CompletionStage<T>> request) {
+        CompletableFuture<Void> ready = awaitReady();
+        if (ready.isDone() && !ready.isCompletedExceptionally()) {
+            return request.get();
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        ready.whenComplete((v, failure) -> {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else if (!result.isDone()) { // Not cancelled while waiting
+                try {
+                    forward(request.get(), result);
+                } catch (RuntimeException ex) {
+                    result.completeExceptionally(ex);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Complete the result with the outcome of the stage, and cancel the stage when the result is cancelled
+     */
+    private static <T> void forward(CompletionStage<T> stage, CompletableFuture<T> result) {
+        stage.whenComplete((answer, failure) -> {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(answer);
+            }
+        });
+        cancelling(result, stage.toCompletableFuture());
+    }
+
+    /**
+     * Send the request and handle its response. Cancelling the returned future aborts the exchange.
+     */
+    private <B, T> CompletableFuture<T> exchange(HttpRequest request, HttpResponse.BodyHandler<B> bodyHandler,
+            Function<HttpResponse<B>, T> handler) {
+        CompletableFuture<HttpResponse<B>> exchange = send(request, bodyHandler);
+        return cancelling(exchange.thenApply(handler), exchange);
+    }
+
+    /**
+     * Send the request, unless the server stopped responding. Only failures that say the server itself is in trouble
+     * (it can not be reached, or it answers with a server error) count towards opening the circuit breaker. A request
+     * that times out does not, as an assist request can take long while the server is fine.
+     */
+    private <B> CompletableFuture<HttpResponse<B>> send(HttpRequest request, HttpResponse.BodyHandler<B> bodyHandler) {
+        if (!circuitBreaker.allowRequest()) {
+            return CompletableFuture.failedFuture(notResponding());
+        }
+        CompletableFuture<HttpResponse<B>> exchange = httpClient().sendAsync(request, bodyHandler);
+        exchange.whenComplete((response, failure) -> {
+            if (failure != null ? isConnectFailure(failure) : response.statusCode() >= 500) {
+                circuitBreaker.onFailure();
+            } else if (failure == null) {
+                circuitBreaker.onSuccess();
+            }
+        });
+        return exchange;
+    }
+
+    /**
+     * Run a request that is safe to repeat, and try again with a growing, jittered delay when the server is busy or
+     * could not be reached. Cancelling the returned future stops the current attempt and any retries.
+     */
+    <T> CompletionStage<T> withRetries(Supplier<CompletionStage<T>> request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(request, result, 0);
+        return result;
+    }
+
+    private <T> void attempt(Supplier<CompletionStage<T>> request, CompletableFuture<T> result, int retry) {
+        if (result.isDone()) {
+            return;
+        }
+        CompletableFuture<T> current;
+        try {
+            current = request.get().toCompletableFuture();
+        } catch (RuntimeException ex) {
+            result.completeExceptionally(ex);
+            return;
+        }
+        cancelling(result, current);
+        current.whenComplete((answer, failure) -> {
+            if (failure == null) {
+                result.complete(answer);
+            } else if (retry < this.retries && isRetryable(failure) && !result.isDone()) {
+                long delay = RETRY_DELAY.toMillis() << Math.min(retry, 16);
+                delay = Math.min(delay, MAX_RETRY_DELAY.toMillis());
+                // Spread the retries of callers that failed at the same time
+                delay = ThreadLocalRandom.current().nextLong(delay / 2, delay + 1);
+                Log.debugf("Chappie server request failed (%s), retrying in %d ms", failure.getMessage(), delay);
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS)
+                        .execute(() -> attempt(request, result, retry + 1));
+            } else {
+                result.completeExceptionally(failure);
+            }
+        });
+    }
+
+    static boolean isRetryable(Throwable failure) {
+        Throwable cause = unwrap(failure);
+        return isServerFailure(cause)
+                || (cause instanceof ChappieHttpException http && http.getStatus() == 429);
+    }
+
+    private static boolean isServerFailure(Throwable failure) {
+        Throwable cause = unwrap(failure);
+        return cause instanceof IOException
+                || (cause instanceof ChappieHttpException http && isServerError(http.getStatus()));
+    }
+
+    static boolean isConnectFailure(Throwable failure) {
+        Throwable cause = unwrap(failure);
+        return cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException;
+    }
+
+    private static boolean isServerError(int status) {
+        return status == 502 || status == 503 || status == 504;
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        Throwable cause = failure;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private static <T> CompletableFuture<T> cancelling(CompletableFuture<T> downstream, Future<?> upstream) {
+        downstream.whenComplete((answer, failure) -> {
+            if (downstream.isCancelled()) {
+                upstream.cancel(true);
+            }
+        });
+        return downstream;
+    }
+
+    /**
+     * Tell the server to stop working on this request. Servers that can not do this ignore it.
+     *
+     * @param memoryId the conversation of the request, or null when it started a new one
+     */
+    private void cancelOnServer(String requestId, String memoryId) {
+        String url = this.baseUrl;
+        if (url == null) {
+            return;
+        }
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(url + "/api/assist/cancel"))
+                .timeout(requestTimeout)
+                .header(HEADER_REQUEST_ID, requestId);
+        if (memoryId != null) {
+            builder = builder.header(HEADER_MEMORY_ID, memoryId);
+        }
+        HttpRequest r = builder.POST(HttpRequest.BodyPublishers.noBody()).build();
+
+        httpClient().sendAsync(r, HttpResponse.BodyHandlers.discarding())
+                .exceptionally(t -> {
+                    Log.debug("Could not cancel the request on the Chappie server", t);
+                    return null;
+                });
+    }
+
+    private static IllegalStateException notConfigured() {
+        return new IllegalStateException("Chappie server is not configured");
+    }
+
+    private static IllegalStateException notResponding() {
+        return new IllegalStateException("Chappie server is not responding, try again once it is back");
+    }
+
+    /**
+     * Release the HTTP client and the executor owned by this assistant. A new client will be created on the next request.
+     */
+    public synchronized void close() {
+        CompletionStage<Void> released = release(this.httpClient);
+        this.httpClient = null;
+        ExecutorService executor = this.ownedExecutor;
+        this.ownedExecutor = null;
+        if (executor != null) {
+            // The client may still need the executor to finish what it is doing
+            released.whenComplete((ignored, failure) -> executor.shutdown());
+        }
+    }
+
+    /**
+     * Stop a client that is no longer used. Clients can be closed from Java 21 on, which waits for the requests that
+     * are still running, so that happens in the background. On older versions the client stops by itself once it is no
+     * longer referenced.
+     */
+    private static CompletionStage<Void> release(HttpClient client) {
+        if (client instanceof AutoCloseable closeable) {
+            return CompletableFuture.runAsync(() -> {
+                try {
+                    closeable.close();
+                } catch (Exception ex) {
+                    Log.debug("Could not close the HTTP client", ex);
+                }
+            });
+        }
+        return CompletableFuture.completedFuture(null);
     }
 
+    /**
+     * Start a new chat conversation
+     */
     public void clearMemory() {
-        this.memoryId = null;
-        this.title = null;
+        sessions.markMostRecent(sessions.reset(CHAT_SESSION));
+    }
+
+    /**
+     * The conversation for this key
+     */
+    public ChappieSession getSession(String sessionKey) {
+        return sessions.get(sessionKey);
     }
 
+    /**
+     * The memoryId of the conversation that last got an answer
+     */
     @Override
     public String getMemoryId() {
-        return this.memoryId;
+        ChappieSession mostRecent = sessions.mostRecent();
+        return mostRecent == null ? null : mostRecent.getMemoryId();
     }
 
     @Override
@@ -196,110 +957,220 @@ public class ChappieAssistant implements Assistant {
     }
 
     public String getTitle() {
-        return this.title;
+        return sessions.get(CHAT_SESSION).getTitle();
     }
 
-    private <T> CompletionStage<T> getAny(HttpRequest request, Class<T> responseType, boolean unwrap) {
-        HttpClient client = HttpClient.newHttpClient();
-
-        return (CompletableFuture<T>) client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-                .thenApply((response) -> {
-                    int status = response.statusCode();
-                    if (status == 200) {
-                        Optional<String> posibleMemoryId = response.headers().firstValue(HEADER_MEMORY_ID);
-                        if (posibleMemoryId.isPresent()) {
-                            this.memoryId = posibleMemoryId.get();
-                        }
-
-                        String body = response.body();
-                        ChappieEnvelope envelope = JsonObjectCreator.getEnvelopeOutput(body, responseType);
-                        this.title = envelope.niceName();
+    private ChappieSession getSession(String sessionKey, String extension, boolean forceNewSession) {
+        String key = sessionKey;
+        if (key == null) {
+            key = extension == null ? DEFAULT_SESSION : extension;
+        }
+        return forceNewSession ? sessions.reset(key) : sessions.get(key);
+    }
 
-                        if (unwrap) {
-                            if (responseType.isInstance(String.class)) {
-                                return body;
-                            } else {
-                                return envelope.answer();
-                            }
+    private <T> CompletableFuture<T> getAny(HttpRequest request, Class<T> responseType, ChappieSession session,
+            boolean unwrap, String cacheKey) {
+        if (cacheKey != null) {
+            // Keep the body, so we can cache it once we know it is a valid answer
+            return (CompletableFuture<T>) exchange(request, HttpResponse.BodyHandlers.ofByteArray(),
+                    (response) -> {
+                        int status = response.statusCode();
+                        if (status == 200) {
+                            String memoryId = response.headers().firstValue(HEADER_MEMORY_ID).orElse(null);
+                            Object answer = toAnswer(memoryId, new ByteArrayInputStream(response.body()), responseType,
+                                    session, unwrap);
+                            responseCache.put(cacheKey, response.body());
+                            return answer;
                         } else {
-                            return Map.of(this.memoryId, envelope);
+                            throw httpError(status, new ByteArrayInputStream(response.body()));
                         }
+                    });
+        }
+        return (CompletableFuture<T>) exchange(request, HttpResponse.BodyHandlers.ofInputStream(),
+                (response) -> {
+                    int status = response.statusCode();
+                    if (status == 200) {
+                        return toAnswer(response.headers().firstValue(HEADER_MEMORY_ID).orElse(null), response.body(),
+                                responseType, session, unwrap);
                     } else {
-                        // TODO: Can we get more details ?
-                        throw new RuntimeException("Failed with HTTP error code : " + status);
+                        throw httpError(status, response.body());
                     }
                 });
     }
 
-    private CompletionStage<Map> getObject(HttpRequest request) {
-        HttpClient client = HttpClient.newHttpClient();
+    private Object toAnswer(String memoryId, InputStream body, Class<?> responseType, ChappieSession session,
+            boolean unwrap) {
+        if (memoryId != null) {
+            session.setMemoryId(memoryId);
+        }
 
-        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-                .thenApply(response -> {
+        Object raw = null;
+        ChappieEnvelope envelope;
+        if (unwrap && responseType == String.class) {
+            // The caller wants the raw body, so this is the one case we need it as a String
+            String json = readBody(body);
+            raw = json;
+            envelope = JsonObjectCreator.getEnvelopeOutput(json, responseType);
+        } else {
+            envelope = JsonObjectCreator.getEnvelopeOutput(body, responseType);
+        }
+        session.setTitle(envelope.niceName());
+        sessions.markMostRecent(session);
+
+        if (unwrap) {
+            return raw != null ? raw : envelope.answer();
+        } else {
+            return Map.of(session.hasMemoryId() ? session.getMemoryId() : "", envelope);
+        }
+    }
+
+    private CompletionStage<Map> getObject(HttpRequest request) {
+        return exchange(request, HttpResponse.BodyHandlers.ofInputStream(),
+                response -> {
                     int status = response.statusCode();
                     if (status == 200) {
-                        try {
-                            return JsonObjectCreator.getMap(response.body());
-                        } catch (Exception e) {
-                            throw new RuntimeException("Failed to parse messages JSON", e);
-                        }
+                        return JsonObjectCreator.getMap(response.body());
                     } else if (status == 204) {
+                        closeQuietly(response.body());
                         return Map.of();
                     } else {
-                        throw new RuntimeException("Failed: HTTP error code : " + status);
+                        throw httpError(status, response.body());
                     }
                 });
     }
 
     private CompletionStage<List<Map>> getArray(HttpRequest request) {
-        HttpClient client = HttpClient.newHttpClient();
-
-        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-                .thenApply(response -> {
+        return exchange(request, HttpResponse.BodyHandlers.ofInputStream(),
+                response -> {
                     int status = response.statusCode();
                     switch (status) {
                         case 200:
-                            try {
-                                return JsonObjectCreator.getList(response.body());
-                            } catch (Exception e) {
-                                throw new RuntimeException("Failed to parse messages JSON", e);
-                            }
+                            return JsonObjectCreator.getList(response.body());
                         case 204:
+                            closeQuietly(response.body());
                             return List.of();
                         default:
-                            throw new RuntimeException("Failed: HTTP error code : " + status);
+                            throw httpError(status, response.body());
                     }
                 });
     }
 
-    private String getExtension() {
-        Class<?> caller = getCallerClass();
-        return getArtifactFromCallerClass(caller);
+    private static RuntimeException httpError(int status, InputStream body) {
+        String preview = JsonObjectCreator.readPreview(body);
+        if (preview == null || preview.isBlank()) {
+            return new ChappieHttpException(status, "Failed with HTTP error code : " + status);
+        }
+        return new ChappieHttpException(status, "Failed with HTTP error code : " + status + " [" + preview + "]");
     }
 
-    private Class<?> getCallerClass() {
-        // Get the caller class that will be used get the gav
-        StackWalker stackWalker = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+    private static String readBody(InputStream body) {
+        try (body) {
+            return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
 
-        stackWalker.walk(frames -> frames.collect(Collectors.toList()));
+    private static void closeQuietly(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException ignored) {
+        }
+    }
 
-        Optional<StackWalker.StackFrame> stackFrame = stackWalker.walk(frames -> frames
-                .filter(frame -> (!frame.getDeclaringClass().getPackageName().startsWith("io.quarkiverse.chappie")
-                        && !frame.getDeclaringClass().getPackageName().startsWith("io.quarkus.assistant")
-                        && !frame.getDeclaringClass().equals(MethodHandle.class)))
-                .findFirst());
+    private HttpClient httpClient() {
+        HttpClient client = this.httpClient;
+        if (client == null) {
+            synchronized (this) {
+                client = this.httpClient;
+                if (client == null) {
+                    Executor executor = this.configuredExecutor;
+                    if (executor == null) {
+                        if (this.ownedExecutor == null) {
+                            this.ownedExecutor = ChappieExecutors.newExecutor("chappie-assistant-http");
+                        }
+                        executor = this.ownedExecutor;
+                    }
+                    // One long-lived client, so connections to the chappie server are kept alive and reused.
+                    // HTTP/2 is negotiated when the server supports it, otherwise we stay on HTTP/1.1
+                    client = HttpClient.newBuilder()
+                            .version(HttpClient.Version.HTTP_2)
+                            .connectTimeout(this.connectTimeout)
+                            .executor(executor)
+                            .build();
+                    this.httpClient = client;
+                }
+            }
+        }
+        return client;
+    }
 
-        if (stackFrame.isPresent()) {
-            return stackFrame.get().getDeclaringClass();
-        } else {
+    private String getExtension() {
+        Class<?> caller = getCallerClass();
+        if (caller == null) {
             return null;
         }
+        Optional<String> artifact = callerArtifacts.get(caller);
+        if (artifact.isEmpty()) {
+            callerArtifacts.remove(caller);
+        }
+        return artifact.orElse(null);
+    }
+
+    private Class<?> getCallerClass() {
+        // Get the caller class that will be used get the gav. The walk stops at the first frame outside the assistant
+        return STACK_WALKER.walk(frames -> frames
+                .map(StackWalker.StackFrame::getDeclaringClass)
+                .filter(c -> !c.getPackageName().startsWith("io.quarkiverse.chappie")
+                        && !c.getPackageName().startsWith("io.quarkus.assistant")
+                        && !c.equals(MethodHandle.class))
+                .findFirst()
+                .orElse(null));
     }
 
-    private String getArtifactFromCallerClass(Class<?> caller) {
+    private static String getArtifactFromCallerClass(Class<?> caller) {
         return DevConsoleManager.invoke("chappie.getArtifact", Map.of("caller", caller.getName()));
     }
 
     private static final String HEADER_MEMORY_ID = "X-Chappie-MemoryId";
+    // Identifies a request from the start, so it can be cancelled on the server
+    private static final String HEADER_REQUEST_ID = "X-Chappie-RequestId";
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    public static final String CHAT_SESSION = "chat";
+
+    // Settings passed on by the server manager
+    public static final String SETTING_CONFIGURATION = "configuration";
+    public static final String SETTING_CACHE = "cache";
+    public static final String SETTING_CACHE_TTL_MINUTES = "cacheTtlMinutes";
+    public static final String SETTING_CACHE_MAX_ENTRIES = "cacheMaxEntries";
+    public static final String SETTING_CONNECT_TIMEOUT_SECONDS = "connectTimeoutSeconds";
+    public static final String SETTING_ASSIST_TIMEOUT_SECONDS = "assistTimeoutSeconds";
+    public static final String SETTING_REQUEST_TIMEOUT_SECONDS = "requestTimeoutSeconds";
+    public static final String SETTING_RETRIES = "retries";
+    public static final String SETTING_TOKEN_BUDGET = "tokenBudget";
+    // Add this variable to an assist request to ask the server again rather than use a cached answer
+    public static final String VAR_NO_CACHE = "_noCache";
+    // Add this variable to an assist request to allow trimming the Java sources in it to the named member, see
+    // ChappieContextPacker
+    public static final String VAR_FOCUS = "_focus";
+
+    private static final int DEFAULT_CACHE_TTL_MINUTES = 24 * 60;
+    private static final int DEFAULT_CACHE_MAX_ENTRIES = 256;
+    private static final int DEFAULT_CONNECT_TIMEOUT_SECONDS = 10;
+    // Answers come from an LLM, so they can take a while
+    private static final int DEFAULT_ASSIST_TIMEOUT_SECONDS = 300;
+    private static final int DEFAULT_REQUEST_TIMEOUT_SECONDS = 30;
+    private static final int DEFAULT_RETRIES = 2;
+    // Estimated tokens of context, after which sources are trimmed
+    private static final int DEFAULT_TOKEN_BUDGET = 16000;
+    private static final Duration RETRY_DELAY = Duration.ofMillis(250);
+    private static final Duration MAX_RETRY_DELAY = Duration.ofSeconds(4);
+    private static final Duration PROBE_TIMEOUT = Duration.ofSeconds(2);
+    private static final int CIRCUIT_BREAKER_THRESHOLD = 5;
+    private static final Path CACHE_DIR = Paths.get(System.getProperty("user.home"), ".quarkus", "chappie", "cache");
+    private static final String DEFAULT_SESSION = "default";
+    private static final int MAX_SESSIONS = 64;
+    private static final Duration SESSION_MAX_IDLE = Duration.ofHours(2);
 
 }
@@ -0,0 +1,97 @@
+package io.quarkiverse.chappie.runtime.dev;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Stops sending requests to a chappie server that does not answer. After a number of failures in a row the breaker
+ * opens, and requests fail straight away instead of each one waiting for its own timeout. While it is open the server
+ * is probed in the background, and the breaker closes as soon as the server answers again.
+ */
+final class ChappieCircuitBreaker {
+    private static final Logger LOG = Logger.getLogger(ChappieCircuitBreaker.class);
+
+    private final int threshold;
+    private final Supplier<CompletionStage<Boolean>> probe;
+    private final AtomicInteger failures = new AtomicInteger();
+    private volatile boolean open = false;
+    // Changes when the breaker is reset, so probes for an earlier server stop
+    private int generation = 0;
+
+    /**
+     * @param threshold the number of failures in a row that opens the breaker
+     * @param probe checks if the server answers again
+     */
+    ChappieCircuitBreaker(int threshold, Supplier<CompletionStage<Boolean>> probe) {
+        this.threshold = threshold;
+        this.probe = probe;
+    }
+
+    boolean allowRequest() {
+        return !open;
+    }
+
+    void onSuccess() {
+        failures.set(0);
+    }
+
+    void onFailure() {
+        if (failures.incrementAndGet() >= threshold) {
+            open();
+        }
+    }
+
+    /**
+     * Start over, for example when we talk to a new server
+     */
+    synchronized void reset() {
+        generation++;
+        failures.set(0);
+        open = false;
+    }
+
+    private synchronized void open() {
+        if (!open) {
+            open = true;
+            LOG.warn("Chappie server is not responding, requests will fail until it answers again");
+            scheduleProbe(generation, INITIAL_PROBE_DELAY);
+        }
+    }
+
+    private synchronized void close(int probed) {
+        if (probed == generation && open) {
+            failures.set(0);
+            open = false;
+            LOG.info("Chappie server is responding again");
+        }
+    }
+
+    private synchronized boolean isProbing(int probed) {
+        return probed == generation && open;
+    }
+
+    private void scheduleProbe(int probed, Duration delay) {
+        CompletableFuture.delayedExecutor(delay.toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+            if (!isProbing(probed)) {
+                return;
+            }
+            probe.get().whenComplete((up, failure) -> {
+                if (Boolean.TRUE.equals(up)) {
+                    close(probed);
+                } else if (isProbing(probed)) {
+                    Duration next = delay.multipliedBy(2);
+                    scheduleProbe(probed, next.compareTo(MAX_PROBE_DELAY) > 0 ? MAX_PROBE_DELAY : next);
+                }
+            });
+        });
+    }
+
+    private static final Duration INITIAL_PROBE_DELAY = Duration.ofSeconds(1);
+    private static final Duration MAX_PROBE_DELAY = Duration.ofSeconds(30);
+}
@@ -0,0 +1,185 @@
+package io.quarkiverse.chappie.runtime.dev;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.logging.Logger;
+
+/**
+ * The assistant configuration file, parsed once and kept in memory. The parsed snapshot is dropped when we write the
+ * file, or when someone else changes it on disk. The directory of the file is watched for that, so it should not hold
+ * files that change often, like logs.
+ */
+final class ChappieConfigFile {
+    private static final Logger LOG = Logger.getLogger(ChappieConfigFile.class);
+
+    private final Path configFile;
+    private volatile Snapshot snapshot;
+    // Changes every time the snapshot is dropped or replaced, so a load that started before is not kept
+    private final AtomicLong generation = new AtomicLong();
+    private volatile WatchService watchService;
+
+    ChappieConfigFile(Path configFile) {
+        this.configFile = configFile;
+    }
+
+    /**
+     * The full configuration, and the configuration of the selected provider with its prefix removed. Do not modify.
+     */
+    record Snapshot(Properties full, Properties active) {
+    }
+
+    Snapshot snapshot() {
+        Snapshot current = this.snapshot;
+        if (current == null) {
+            long loading = generation.get();
+            current = load();
+            synchronized (this) {
+                if (generation.get() == loading) {
+                    this.snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Write the configuration to a temporary file and move it in place, so readers never see a half written file
+     */
+    boolean store(Properties properties) {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(configFile.getParent(), configFile.getFileName().toString(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "Chappie Configuration");
+            }
+            try {
+                Files.move(temp, configFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, configFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Properties full = new Properties();
+            full.putAll(properties);
+            replace(new Snapshot(full, scope(full, null)));
+            return true;
+        } catch (IOException ex) {
+            LOG.error("Could not save the Chappie configuration", ex);
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                }
+            }
+            return false;
+        }
+    }
+
+    void invalidate() {
+        replace(null);
+    }
+
+    private synchronized void replace(Snapshot snapshot) {
+        generation.incrementAndGet();
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Drop the snapshot when the file changes on disk, for example when another application saved it
+     */
+    void watch() {
+        try {
+            WatchService ws = configFile.getFileSystem().newWatchService();
+            configFile.getParent().register(ws, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            this.watchService = ws;
+            Thread watcher = new Thread(() -> watch(ws), "chappie-config-watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+        } catch (IOException | UnsupportedOperationException e) {
+            LOG.debug("Could not watch the Chappie configuration, changes from outside will not be seen", e);
+        }
+    }
+
+    void close() {
+        WatchService ws = this.watchService;
+        this.watchService = null;
+        if (ws != null) {
+            try {
+                ws.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Only keep the keys of the named provider (or the selected one if name is null), without the prefix
+     */
+    static Properties scope(Properties full, String name) {
+        if (name == null || name.isBlank()) {
+            name = full.getProperty("name");
+        }
+
+        if (name == null || name.isBlank()) {
+            return new Properties(); // or throw if name is mandatory
+        }
+
+        Properties scopedProps = new Properties();
+        scopedProps.setProperty("name", name);
+
+        String prefix = name + ".";
+
+        for (String key : full.stringPropertyNames()) {
+            if (key.startsWith(prefix)) {
+                String trimmedKey = key.substring(prefix.length());
+                scopedProps.setProperty(trimmedKey, full.getProperty(key));
+            }
+        }
+
+        return scopedProps;
+    }
+
+    private Snapshot load() {
+        Properties full = new Properties();
+        if (Files.exists(configFile)) {
+            try (InputStream in = Files.newInputStream(configFile)) {
+                full.load(in);
+            } catch (IOException ex) {
+                LOG.error("Could not read the Chappie configuration", ex);
+            }
+        }
+        return new Snapshot(full, scope(full, null));
+    }
+
+    private void watch(WatchService ws) {
+        Path name = configFile.getFileName();
+        try {
+            while (true) {
+                WatchKey key = ws.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context())) {
+                        invalidate();
+                    }
+                }
+                if (!key.reset()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // We are done
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package io.quarkiverse.chappie.runtime.dev;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Makes the context of an assist request smaller before it is sent. A file that is in the paths and also in full in a
+ * variable is only sent once, in the variable. When the request is still bigger than the token budget, Java sources
+ * in the variables are trimmed to the member the request is about: the bodies of the other methods are left out and
+ * a marker is put in their place, so they can be put back in an answer with {@link #restore(String, String, String)}.
+ *
+ * Tokens are estimated, at about four characters per token, as the tokenizer depends on the model.
+ */
+public final class ChappieContextPacker {
+
+    public record Packed(Map<String, String> variables, List<Path> paths) {
+    }
+
+    /**
+     * A member of the outermost type. The body is the range of the braces, or -1 when the member has none.
+     */
+    private record Member(int start, int end, int bodyStart, int bodyEnd) {
+    }
+
+    private ChappieContextPacker() {
+    }
+
+    /**
+     * @param focus the member the request is about, an empty String when it is about none in particular, or null when
+     *        the content must not be trimmed
+     */
+    static Packed pack(String systemMessage, String userMessage, Map<String, String> variables, List<Path> paths,
+            String focus, int tokenBudget) {
+        Map<String, String> packedVariables = new LinkedHashMap<>(variables);
+        List<Path> packedPaths = new ArrayList<>();
+        // The variables that hold a Java source in full
+        List<String> sources = new ArrayList<>();
+        Map<Path, Long> sizes = new HashMap<>();
+
+        if (paths != null) {
+            for (Path path : paths) {
+                String duplicate = path == null ? null : findVariableWithContent(packedVariables, path);
+                if (duplicate == null) {
+                    packedPaths.add(path);
+                    continue;
+                }
+                // The file is sent in the variable already, only tell where it comes from
+                packedVariables.putIfAbsent(VAR_PATH, path.toString());
+                if (path.toString().endsWith(".java") && !sources.contains(duplicate)) {
+                    sources.add(duplicate);
+                }
+            }
+        }
+
+        if (focus == null || sources.isEmpty()
+                || estimateTokens(systemMessage, userMessage, packedVariables, packedPaths, sizes) <= tokenBudget) {
+            return new Packed(packedVariables, packedPaths);
+        }
+        for (String source : sources) {
+            packedVariables.put(source, trim(packedVariables.get(source), focus));
+        }
+        return new Packed(packedVariables, packedPaths);
+    }
+
+    /**
+     * Put the method bodies that were left out of the source back in the answer. Every marker that was sent must be in
+     * the answer once, and the answer must not have other markers, otherwise bodies would be lost or duplicated.
+     *
+     * @param original the source before it was packed
+     * @param packed the source as it was sent, with markers where bodies were left out
+     * @param answer content based on the packed source
+     * @return the answer with all bodies in place, or null when the markers in the answer do not match the ones sent
+     */
+    public static String restore(String original, String packed, String answer) {
+        if (answer == null) {
+            return null;
+        }
+        Set<Integer> sent = markers(packed);
+        List<Member> members = sent.isEmpty() ? List.of() : members(original);
+        Set<Integer> found = new HashSet<>();
+        Matcher matcher = OMITTED.matcher(answer);
+        StringBuilder restored = new StringBuilder();
+        while (matcher.find()) {
+            int index = Integer.parseInt(matcher.group(1));
+            if (!sent.contains(index) || !found.add(index) || index >= members.size()
+                    || members.get(index).bodyStart() < 0) {
+                return null;
+            }
+            Member member = members.get(index);
+            matcher.appendReplacement(restored,
+                    Matcher.quoteReplacement(original.substring(member.bodyStart(), member.bodyEnd() + 1)));
+        }
+        matcher.appendTail(restored);
+        // A marker that was dropped, or changed so it no longer matches, means a body is missing
+        if (!found.equals(sent) || restored.indexOf(MARKER) >= 0) {
+            return null;
+        }
+        return restored.toString();
+    }
+
+    /**
+     * The member a stack frame is in, as used for the focus of a request
+     */
+    public static String focus(StackTraceElement frame) {
+        if (frame == null) {
+            return "";
+        }
+        String method = frame.getMethodName();
+        if (method.startsWith("lambda$")) {
+            // lambda$process$0 is a lambda in process
+            int end = method.indexOf('$', "lambda$".length());
+            return end < 0 ? "" : method.substring("lambda$".length(), end);
+        }
+        if (method.equals("<init>")) {
+            String className = frame.getClassName();
+            return className.substring(Math.max(className.lastIndexOf('.'), className.lastIndexOf('$')) + 1);
+        }
+        return method.equals("<clinit>") ? "" : method;
+    }
+
+    static int estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    private static int estimateTokens(String systemMessage, String userMessage, Map<String, String> variables,
+            List<Path> paths, Map<Path, Long> sizes) {
+        long tokens = estimateTokens(systemMessage) + estimateTokens(userMessage);
+        for (String value : variables.values()) {
+            tokens += estimateTokens(value);
+        }
+        for (Path path : paths) {
+            tokens += sizes.computeIfAbsent(path, ChappieContextPacker::size) / CHARS_PER_TOKEN;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, tokens);
+    }
+
+    private static String findVariableWithContent(Map<String, String> variables, Path path) {
+        String content;
+        try {
+            if (!Files.isRegularFile(path)) {
+                return null;
+            }
+            content = Files.readString(path);
+        } catch (IOException | RuntimeException ex) {
+            return null;
+        }
+        if (content.isBlank()) {
+            return null;
+        }
+        for (Map.Entry<String, String> variable : variables.entrySet()) {
+            if (variable.getValue() != null && variable.getValue().contains(content)) {
+                return variable.getKey();
+            }
+        }
+        return null;
+    }
+
+    private static long size(Path path) {
+        try {
+            return path == null ? 0 : Files.size(path);
+        } catch (IOException | RuntimeException ex) {
+            return 0;
+        }
+    }
+
+    /**
+     * Leave out the bodies of the methods other than the focus
+     */
+    private static String trim(String source, String focus) {
+        List<Member> members = members(source);
+        StringBuilder trimmed = new StringBuilder(source.length());
+        int from = 0;
+        for (int i = 0; i < members.size(); i++) {
+            Member member = members.get(i);
+            if (member.bodyStart() < 0) {
+                continue;
+            }
+            String declaration = source.substring(member.start(), member.bodyStart());
+            Matcher name = METHOD_NAME.matcher(declaration);
+            if (!name.find() || name.group(1).equals(focus)) {
+                // Not a method, like a nested type or an initializer, or the one we are after
+                continue;
+            }
+            trimmed.append(source, from, member.bodyStart());
+            trimmed.append("{ ").append(MARKER).append(i).append(" */ }");
+            from = member.bodyEnd() + 1;
+        }
+        trimmed.append(source, from, source.length());
+        return trimmed.toString();
+    }
+
+    /**
+     * Find the members of the outermost type. This is not a parser, it follows the braces while skipping comments and
+     * literals, which is good enough to find where members start and end.
+     */
+    private static List<Member> members(String source) {
+        List<Member> members = new ArrayList<>();
+        int depth = 0;
+        int parens = 0;
+        int start = -1;
+        int bodyStart = -1;
+        boolean initializer = false;
+        int length = source.length();
+        for (int i = 0; i < length; i++) {
+            char c = source.charAt(i);
+            if (c == '/' && i + 1 < length && source.charAt(i + 1) == '/') {
+                i = indexOrEnd(source, "\n", i + 2);
+                continue;
+            }
+            if (c == '/' && i + 1 < length && source.charAt(i + 1) == '*') {
+                i = indexOrEnd(source, "*/", i + 2) + 1;
+                continue;
+            }
+            if (c == '"') {
+                i = skipString(source, i);
+                continue;
+            }
+            if (c == '\'') {
+                i = skipLiteral(source, i, '\'');
+                continue;
+            }
+            if (c == '(') {
+                parens++;
+            } else if (c == ')') {
+                parens = Math.max(0, parens - 1);
+            }
+            if (parens > 0) {
+                // Braces in annotations and in arguments, like lambdas, do not start or end a member
+                continue;
+            }
+            if (depth == 1 && start < 0 && !Character.isWhitespace(c) && c != ';' && c != '}') {
+                start = i;
+                initializer = false;
+            }
+            if (c == '=' && depth == 1) {
+                initializer = true;
+            } else if (c == '{') {
+                if (depth == 1 && start >= 0 && !initializer) {
+                    bodyStart = i;
+                }
+                depth++;
+            } else if (c == '}') {
+                depth--;
+                if (depth == 1 && bodyStart >= 0) {
+                    members.add(new Member(start, i + 1, bodyStart, i));
+                    start = -1;
+                    bodyStart = -1;
+                } else if (depth == 0) {
+                    // The end of the outermost type
+                    break;
+                }
+            } else if (c == ';' && depth == 1 && start >= 0) {
+                members.add(new Member(start, i + 1, -1, -1));
+                start = -1;
+            }
+        }
+        return members;
+    }
+
+    private static Set<Integer> markers(String source) {
+        Set<Integer> markers = new HashSet<>();
+        if (source != null) {
+            Matcher matcher = OMITTED.matcher(source);
+            while (matcher.find()) {
+                markers.add(Integer.parseInt(matcher.group(1)));
+            }
+        }
+        return markers;
+    }
+
+    private static int indexOrEnd(String source, String token, int from) {
+        int index = source.indexOf(token, from);
+        return index < 0 ? source.length() : index;
+    }
+
+    private static int skipString(String source, int i) {
+        if (source.startsWith("\"\"\"", i)) {
+            // Text block
+            int end = source.indexOf("\"\"\"", i + 3);
+            while (end > 0 && source.charAt(end - 1) == '\\') {
+                end = source.indexOf("\"\"\"", end + 1);
+            }
+            return end < 0 ? source.length() : end + 2;
+        }
+        return skipLiteral(source, i, '"');
+    }
+
+    private static int skipLiteral(String source, int i, char quote) {
+        for (int j = i + 1; j < source.length(); j++) {
+            char c = source.charAt(j);
+            if (c == '\\') {
+                j++;
+            } else if (c == quote || c == '\n') {
+                return j;
+            }
+        }
+        return source.length();
+    }
+
+    // Added for a path that is sent in a variable instead, so the assistant still knows the file
+    static final String VAR_PATH = "path";
+
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final String MARKER = "/* chappie:omitted:";
+    private static final Pattern OMITTED = Pattern.compile("\\{\\s*/\\* chappie:omitted:(\\d+) \\*/\\s*}");
+    // The name of a method or constructor, skipping annotations like @Path("/")
+    private static final Pattern METHOD_NAME = Pattern.compile("(?<![@\\p{L}\\p{N}_$])([\\p{L}_$][\\p{L}\\p{N}_$]*)\\s*\\(");
+}
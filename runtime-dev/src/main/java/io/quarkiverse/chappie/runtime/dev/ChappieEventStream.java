@@ -0,0 +1,113 @@
+package io.quarkiverse.chappie.runtime.dev;
+
+import java.util.concurrent.Flow;
+
+/**
+ * Reads Server-Sent Events from the lines of a response as they arrive, so no thread waits for the next line. Lines
+ * starting with a colon are comments, and fields other than event and data are ignored.
+ */
+final class ChappieEventStream implements Flow.Subscriber<String> {
+
+    interface Handler {
+
+        /**
+         * @param event the name of the event, or null for an unnamed event
+         * @return false to stop reading
+         */
+        boolean onEvent(String event, String data);
+
+        /**
+         * The stream ended, normally when failure is null. Not called when the handler or the caller stopped reading.
+         */
+        void onEnd(Throwable failure);
+    }
+
+    private final Handler handler;
+    private final StringBuilder data = new StringBuilder();
+    private String event;
+    private boolean hasData;
+    private Flow.Subscription subscription;
+    private boolean stopped;
+
+    ChappieEventStream(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Stop reading, the rest of the stream is ignored
+     */
+    synchronized void cancel() {
+        stopped = true;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    @Override
+    public synchronized void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        if (stopped) {
+            subscription.cancel();
+        } else {
+            subscription.request(Long.MAX_VALUE);
+        }
+    }
+
+    @Override
+    public synchronized void onNext(String line) {
+        if (stopped) {
+            return;
+        }
+        if (line.isEmpty()) {
+            dispatch();
+            return;
+        }
+        if (line.startsWith(":")) {
+            return;
+        }
+        int colon = line.indexOf(':');
+        String field = colon < 0 ? line : line.substring(0, colon);
+        String value = colon < 0 ? "" : line.substring(colon + 1);
+        if (value.startsWith(" ")) {
+            value = value.substring(1);
+        }
+        if (field.equals("event")) {
+            event = value.trim();
+        } else if (field.equals("data")) {
+            if (hasData) {
+                data.append('\n');
+            }
+            data.append(value);
+            hasData = true;
+        }
+    }
+
+    @Override
+    public synchronized void onError(Throwable failure) {
+        if (!stopped) {
+            stopped = true;
+            handler.onEnd(failure);
+        }
+    }
+
+    @Override
+    public synchronized void onComplete() {
+        // The last event may not be followed by an empty line
+        dispatch();
+        if (!stopped) {
+            stopped = true;
+            handler.onEnd(null);
+        }
+    }
+
+    private void dispatch() {
+        if (!stopped && (hasData || event != null)) {
+            if (!handler.onEvent(event, data.toString())) {
+                cancel();
+            }
+        }
+        event = null;
+        data.setLength(0);
+        hasData = false;
+    }
+}
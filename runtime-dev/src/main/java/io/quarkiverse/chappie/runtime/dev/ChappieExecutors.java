@@ -0,0 +1,58 @@
+package io.quarkiverse.chappie.runtime.dev;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Executors used by the assistant. We compile against Java 17, so virtual threads are looked up reflectively and used
+ * when the running JVM has them, otherwise we fall back to a cached pool of daemon threads. Timed work, like polling
+ * the server while it starts, runs on a single daemon thread.
+ */
+final class ChappieExecutors {
+    private static final Logger LOG = Logger.getLogger(ChappieExecutors.class);
+
+    private static final MethodHandle VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+
+    private ChappieExecutors() {
+    }
+
+    static ExecutorService newExecutor(String name) {
+        if (VIRTUAL_THREAD_EXECUTOR != null) {
+            try {
+                return (ExecutorService) VIRTUAL_THREAD_EXECUTOR.invokeExact();
+            } catch (Throwable t) {
+                LOG.debugf(t, "Could not create a virtual thread executor for %s, using platform threads", name);
+            }
+        }
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    static ScheduledExecutorService newScheduler(String name) {
+        return Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static MethodHandle findVirtualThreadExecutor() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
@@ -27,6 +27,10 @@ public class ChappieHotReplacementSetup implements HotReplacementSetup {
 
     @Override
     public void close() {
+        ProcessHandle currentProcess = this.currentProcess;
+        if (currentProcess == null || !ChappieServerManager.detach(currentProcess)) {
+            return; // No server, or other applications still use it
+        }
         try {
             currentProcess.destroy();
         } catch (Exception e) {
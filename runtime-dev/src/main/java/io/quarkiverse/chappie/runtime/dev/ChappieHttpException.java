@@ -0,0 +1,18 @@
+package io.quarkiverse.chappie.runtime.dev;
+
+/**
+ * The chappie server answered with an HTTP error
+ */
+public class ChappieHttpException extends RuntimeException {
+
+    private final int status;
+
+    public ChappieHttpException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
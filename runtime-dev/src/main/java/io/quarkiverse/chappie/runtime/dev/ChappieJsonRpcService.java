@@ -10,6 +10,8 @@ import java.util.concurrent.CompletionStage;
 
 import jakarta.inject.Inject;
 
+import io.smallrye.mutiny.Multi;
+
 /**
  * Dev UI JsonRPC Service
  */
@@ -72,7 +74,7 @@ public class ChappieJsonRpcService {
     public String getMemoryId() {
         ChappieAssistant a = chappieServerManager.getChappieAssistant();
         if (a != null) {
-            return a.getMemoryId();
+            return a.getSession(ChappieAssistant.CHAT_SESSION).getMemoryId();
         }
         return null;
     }
@@ -103,11 +105,13 @@ public class ChappieJsonRpcService {
 
             if (chappieServerManager.isMcpEnabled()) {
                 return a.assist(
-                        Optional.of(ChatPrompts.SYSTEM_MESSAGE + "\n\n" + ChatPrompts.SYSTEM_MESSAGE_MCP),
+                        Optional.of(ChatPrompts.SYSTEM_MESSAGE + "\n\n" + ChatPrompts.SYSTEM_MESSAGE_MCP
+                                + ChatPrompts.SYSTEM_MESSAGE_MCP_ACTION),
                         ChatPrompts.USER_MESSAGE,
                         vars,
                         List.of(),
                         ChatPrompts.ChatResponseWithMCP.class,
+                        ChappieAssistant.CHAT_SESSION,
                         false,
                         false);
             } else {
@@ -117,6 +121,7 @@ public class ChappieJsonRpcService {
                         vars,
                         List.of(),
                         ChatPrompts.ChatResponse.class,
+                        ChappieAssistant.CHAT_SESSION,
                         false,
                         false);
             }
@@ -124,4 +129,54 @@ public class ChappieJsonRpcService {
         return CompletableFuture.failedFuture(new RuntimeException("Assistant not available"));
     }
 
-}
\ No newline at end of file
+    /**
+     * Streams the answer to a chat message. Every item is either a piece of markdown, a final item marked as done that
+     * carries the memoryId and niceName, or an error.
+     */
+    public Multi<Map<String, String>> streamChat(String message) {
+        ChappieAssistant a = chappieServerManager.getChappieAssistant();
+        if (a == null) {
+            return Multi.createFrom().item(Map.of("error", "Assistant not available"));
+        }
+        Map<String, String> vars = new HashMap<>();
+        vars.put("message", message);
+        vars.put("extension", "any");
+
+        Multi<String> markdown;
+        if (chappieServerManager.isMcpEnabled()) {
+            markdown = a.assistStream(
+                    Optional.of(ChatPrompts.SYSTEM_MESSAGE_STREAM + "\n\n" + ChatPrompts.SYSTEM_MESSAGE_MCP),
+                    ChatPrompts.USER_MESSAGE,
+                    vars,
+                    List.of(),
+                    ChatPrompts.ChatResponseWithMCP.class,
+                    ChappieAssistant.CHAT_SESSION,
+                    false);
+        } else {
+            markdown = a.assistStream(
+                    Optional.of(ChatPrompts.SYSTEM_MESSAGE_STREAM),
+                    ChatPrompts.USER_MESSAGE,
+                    vars,
+                    List.of(),
+                    ChatPrompts.ChatResponse.class,
+                    ChappieAssistant.CHAT_SESSION,
+                    false);
+        }
+
+        // Dev UI subscriptions do not see completion, so we end with an explicit done item
+        Multi<Map<String, String>> done = Multi.createFrom().item(() -> {
+            ChappieSession session = a.getSession(ChappieAssistant.CHAT_SESSION);
+            Map<String, String> m = new HashMap<>();
+            m.put("done", "true");
+            m.put("memoryId", session.getMemoryId());
+            m.put("niceName", session.getTitle());
+            m.put("action", session.getAction());
+            return m;
+        });
+
+        return Multi.createBy().concatenating()
+                .streams(markdown.map(md -> Map.of("markdown", md)), done)
+                .onFailure().recoverWithItem(t -> Map.of("error", String.valueOf(t.getMessage())));
+    }
+
+}
@@ -20,8 +20,12 @@ public class ChappieRecorder {
     public RuntimeValue<SubmissionPublisher<String>> createChappieServerManager(BeanContainer beanContainer,
             ChappieAssistant assistant,
             String chappieServerVersion,
+            String chappieServerChecksum,
             String quarkusVersion,
-            String devMcpPath) {
+            String devMcpPath,
+            Map<String, String> responsePrompts) {
+        JsonObjectCreator.registerResponsePrompts(responsePrompts);
+
         Config config = ConfigProvider.getConfig();
         Map<String, String> chappieRAGProperties = new HashMap<>();
 
@@ -40,7 +44,8 @@ public class ChappieRecorder {
 
         ChappieServerManager chappieServerManager = beanContainer.beanInstance(ChappieServerManager.class);
         return new RuntimeValue(
-                chappieServerManager.init(chappieServerVersion, quarkusVersion, assistant, chappieRAGProperties, devMcpPath));
+                chappieServerManager.init(chappieServerVersion, chappieServerChecksum, quarkusVersion, assistant,
+                        chappieRAGProperties, devMcpPath));
     }
 
     void configMap(Config config, Map<String, String> map, String sourceKey, String targetKey) {
@@ -0,0 +1,282 @@
+package io.quarkiverse.chappie.runtime.dev;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Remembers the answers to assist requests that do not depend on a conversation, like the workspace actions and the
+ * exception suggestions, so asking again for the same file returns straight away and costs no tokens. Answers are
+ * kept in memory (least recently used first out) and on disk, and expire after a while.
+ *
+ * The key covers everything that goes into the answer: the prompts, the variables, the content of the files, the
+ * response type and the configuration of the server (provider, model and so on). The conversation the answer was given
+ * in is not kept, as the server may have forgotten it by the time the answer is reused.
+ *
+ * Answers are written to disk in the background, one after the other, so the thread that got the answer does not wait.
+ */
+final class ChappieResponseCache {
+    private static final Logger LOG = Logger.getLogger(ChappieResponseCache.class);
+    private static final String EXTENSION = ".cache";
+    private static final int DISK_ENTRIES_PER_MEMORY_ENTRY = 4;
+
+    record Entry(byte[] body, long expiresAt) {
+    }
+
+    private final Path dir;
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    // The last disk write, the next one starts after it
+    private CompletableFuture<Void> writes = CompletableFuture.completedFuture(null);
+
+    private volatile boolean enabled = false;
+    private volatile Duration ttl = Duration.ofHours(24);
+    private volatile int maxEntries = 256;
+
+    ChappieResponseCache(Path dir) {
+        this.dir = dir;
+    }
+
+    void configure(boolean enabled, Duration ttl, int maxEntries) {
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+        synchronized (memory) {
+            if (!enabled) {
+                memory.clear();
+            }
+            evict();
+        }
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    Entry get(String key) {
+        long now = System.currentTimeMillis();
+        synchronized (memory) {
+            Entry entry = memory.get(key);
+            if (entry != null) {
+                if (entry.expiresAt() > now) {
+                    return entry;
+                }
+                memory.remove(key);
+            }
+        }
+        Entry entry = read(key);
+        if (entry != null) {
+            if (entry.expiresAt() > now) {
+                remember(key, entry);
+                return entry;
+            }
+            delete(key);
+        }
+        return null;
+    }
+
+    void put(String key, byte[] body) {
+        Entry entry = new Entry(body, System.currentTimeMillis() + ttl.toMillis());
+        remember(key, entry);
+        synchronized (memory) {
+            writes = writes.thenRunAsync(() -> write(key, entry));
+        }
+    }
+
+    /**
+     * Completes once the answers put so far are on disk
+     */
+    CompletableFuture<Void> flush() {
+        synchronized (memory) {
+            return writes;
+        }
+    }
+
+    /**
+     * The key for a request
+     *
+     * @param contents true to hash the files by content, so changing a file means asking again. Otherwise only their
+     *        size and modification time are used, which is cheaper and good enough for requests that are in flight.
+     */
+    static String key(String configuration, String systemMessage, String userMessage, Map<String, String> variables,
+            List<Path> paths, Class<?> responseType, boolean unwrap, boolean contents) {
+        MessageDigest digest = sha256();
+        update(digest, configuration);
+        update(digest, systemMessage);
+        update(digest, userMessage);
+        for (Map.Entry<String, String> variable : new TreeMap<>(variables).entrySet()) {
+            update(digest, variable.getKey());
+            update(digest, variable.getValue());
+        }
+        if (paths != null) {
+            byte[] buffer = new byte[8192];
+            for (Path path : paths) {
+                update(digest, String.valueOf(path));
+                if (path != null && !contents) {
+                    try {
+                        update(digest, Files.size(path) + "@" + Files.getLastModifiedTime(path).toMillis());
+                    } catch (IOException ex) {
+                        update(digest, ex.getMessage());
+                    }
+                } else if (path != null && Files.isRegularFile(path)) {
+                    try (InputStream in = Files.newInputStream(path)) {
+                        int read;
+                        while ((read = in.read(buffer)) != -1) {
+                            digest.update(buffer, 0, read);
+                        }
+                    } catch (IOException ex) {
+                        update(digest, ex.getMessage());
+                    }
+                }
+            }
+        }
+        update(digest, responseType == null ? null : responseType.getName());
+        update(digest, String.valueOf(unwrap));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void remember(String key, Entry entry) {
+        synchronized (memory) {
+            memory.put(key, entry);
+            evict();
+        }
+    }
+
+    private void evict() {
+        Iterator<Entry> entries = memory.values().iterator();
+        while (memory.size() > maxEntries && entries.hasNext()) {
+            entries.next();
+            entries.remove();
+        }
+    }
+
+    private Entry read(String key) {
+        Path file = dir.resolve(key + EXTENSION);
+        if (Files.notExists(file)) {
+            return null;
+        }
+        try {
+            byte[] content = Files.readAllBytes(file);
+            // <expiresAt>\n<body>
+            int newline = indexOf(content, 0);
+            if (newline < 0) {
+                return null;
+            }
+            long expiresAt = Long.parseLong(new String(content, 0, newline, StandardCharsets.UTF_8));
+            byte[] body = new byte[content.length - newline - 1];
+            System.arraycopy(content, newline + 1, body, 0, body.length);
+            return new Entry(body, expiresAt);
+        } catch (IOException | RuntimeException ex) {
+            LOG.debug("Could not read a cached Chappie answer", ex);
+            return null;
+        }
+    }
+
+    private void write(String key, Entry entry) {
+        Path temp = null;
+        try {
+            Files.createDirectories(dir);
+            temp = Files.createTempFile(dir, key, ".tmp");
+            byte[] header = (entry.expiresAt() + "\n").getBytes(StandardCharsets.UTF_8);
+            byte[] content = new byte[header.length + entry.body().length];
+            System.arraycopy(header, 0, content, 0, header.length);
+            System.arraycopy(entry.body(), 0, content, header.length, entry.body().length);
+            Files.write(temp, content);
+            try {
+                Files.move(temp, dir.resolve(key + EXTENSION), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, dir.resolve(key + EXTENSION), StandardCopyOption.REPLACE_EXISTING);
+            }
+            pruneDisk();
+        } catch (IOException | RuntimeException ex) {
+            LOG.debug("Could not cache a Chappie answer", ex);
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Keep the disk cache bounded, the oldest answers go first
+     */
+    private void pruneDisk() throws IOException {
+        List<Path> files;
+        try (Stream<Path> s = Files.list(dir)) {
+            files = s.filter(f -> f.getFileName().toString().endsWith(EXTENSION)).toList();
+        }
+        int max = maxEntries * DISK_ENTRIES_PER_MEMORY_ENTRY;
+        if (files.size() > max) {
+            List<Path> oldestFirst = files.stream()
+                    .sorted(Comparator.comparingLong(ChappieResponseCache::lastModified))
+                    .toList();
+            for (Path file : oldestFirst.subList(0, files.size() - max)) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private void delete(String key) {
+        try {
+            Files.deleteIfExists(dir.resolve(key + EXTENSION));
+        } catch (IOException ex) {
+            LOG.debug("Could not delete a cached Chappie answer", ex);
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException ex) {
+            return 0;
+        }
+    }
+
+    private static int indexOf(byte[] content, int from) {
+        for (int i = from; i < content.length; i++) {
+            if (content[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update((byte) 0);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) ':');
+            digest.update(bytes);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
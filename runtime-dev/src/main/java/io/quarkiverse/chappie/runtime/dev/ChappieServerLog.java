@@ -0,0 +1,234 @@
+package io.quarkiverse.chappie.runtime.dev;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Reads the output of the chappie server process from its pipe, appends it to the log file and passes it on to the
+ * current listener (the Dev UI footer). Reading blocks until the server writes something, so an idle server costs
+ * nothing.
+ *
+ * The most recent lines are kept in memory, so a new listener gets some history without reading the file. The log file
+ * is rotated when it gets too big. The server picks its own port, which we find in the output. A shared server writes
+ * to a file of its own instead, which is scanned for the port.
+ */
+final class ChappieServerLog {
+    private static final Logger LOG = Logger.getLogger(ChappieServerLog.class);
+    private static final int MAX_BATCH = 256;
+    private static final int RECENT_LINES = 500;
+    private static final long MAX_LOG_SIZE = 5 * 1024 * 1024;
+    private static final int MAX_ROTATED_LOGS = 2;
+    private static final Duration OUTPUT_SCAN_INTERVAL = Duration.ofMillis(100);
+
+    // Quarkus logs the url it listens on once it started, this is how we find the port the server picked
+    private static final Pattern LISTENING = Pattern.compile("Listening on: \\S+:(\\d+)");
+
+    private final Path logFile;
+    private final ArrayDeque<String> recent = new ArrayDeque<>(RECENT_LINES);
+    private final CompletableFuture<Integer> listeningPort = new CompletableFuture<>();
+    private Consumer<List<String>> listener;
+
+    private ChappieServerLog(Path logFile) {
+        this.logFile = logFile;
+    }
+
+    static ChappieServerLog attach(Process process, Path logFile) {
+        ChappieServerLog serverLog = new ChappieServerLog(logFile);
+        Thread pump = new Thread(() -> serverLog.pump(process), "chappie-server-log-" + process.pid());
+        pump.setDaemon(true);
+        pump.start();
+        return serverLog;
+    }
+
+    /**
+     * Set who receives new lines, in batches. The recent lines are passed on first. Use null to stop receiving.
+     */
+    void setListener(Consumer<List<String>> listener) {
+        synchronized (recent) {
+            this.listener = listener;
+            if (listener != null && !recent.isEmpty()) {
+                publish(listener, List.copyOf(recent));
+            }
+        }
+    }
+
+    /**
+     * The port the server listens on. Fails when the server stops before it listens.
+     */
+    CompletableFuture<Integer> listeningPort() {
+        return listeningPort.copy();
+    }
+
+    /**
+     * Rotate the log file if it is too big. Rotated files are named chappie-assistant.log.1, .2 and so on.
+     */
+    static void rotateIfNeeded(Path logFile) {
+        try {
+            if (Files.exists(logFile) && Files.size(logFile) >= MAX_LOG_SIZE) {
+                for (int i = MAX_ROTATED_LOGS; i > 1; i--) {
+                    Path older = rotated(logFile, i - 1);
+                    if (Files.exists(older)) {
+                        Files.move(older, rotated(logFile, i), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+                Files.move(logFile, rotated(logFile, 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LOG.debug("Could not rotate the Chappie Server log", e);
+        }
+    }
+
+    /**
+     * The port a server that writes to a file rather than to our pipe listens on, like a shared server that can outlive
+     * us. The file is read as it grows, until the port is found. Fails when the server stops before it listens.
+     */
+    static CompletableFuture<Integer> listeningPort(Path output, ProcessHandle process,
+            ScheduledExecutorService scheduler) {
+        CompletableFuture<Integer> port = new CompletableFuture<>();
+        Runnable scan = new Runnable() {
+            private long position;
+            private final StringBuilder line = new StringBuilder();
+
+            @Override
+            public void run() {
+                // Read once more after the server stopped, it may have listened just before
+                boolean alive = process.isAlive();
+                try (SeekableByteChannel channel = Files.newByteChannel(output)) {
+                    channel.position(position);
+                    ByteBuffer buffer = ByteBuffer.allocate(8192);
+                    int read;
+                    while ((read = channel.read(buffer)) > 0) {
+                        position += read;
+                        buffer.flip();
+                        // The pattern is ASCII, so every byte can be read as a char, whatever the encoding
+                        while (buffer.hasRemaining()) {
+                            char c = (char) (buffer.get() & 0xff);
+                            if (c != '\n') {
+                                line.append(c);
+                                continue;
+                            }
+                            Matcher matcher = LISTENING.matcher(line);
+                            if (matcher.find()) {
+                                port.complete(Integer.valueOf(matcher.group(1)));
+                                return;
+                            }
+                            line.setLength(0);
+                        }
+                        buffer.clear();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    port.completeExceptionally(e);
+                    return;
+                }
+                if (!alive) {
+                    port.completeExceptionally(new IllegalStateException("Chappie Server stopped"));
+                }
+            }
+        };
+        try {
+            ScheduledFuture<?> task = scheduler.scheduleWithFixedDelay(scan, 0, OUTPUT_SCAN_INTERVAL.toMillis(),
+                    TimeUnit.MILLISECONDS);
+            port.whenComplete((found, failure) -> task.cancel(false));
+        } catch (RejectedExecutionException e) {
+            port.completeExceptionally(e);
+        }
+        return port;
+    }
+
+    private static Path rotated(Path logFile, int index) {
+        return logFile.resolveSibling(logFile.getFileName() + "." + index);
+    }
+
+    private void pump(Process process) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), Charset.defaultCharset()))) {
+            BufferedWriter writer = openLog();
+            long size = Files.size(logFile);
+            try {
+                List<String> batch = new ArrayList<>();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    batch.add(line);
+                    // Take whatever else is already available, so a burst of output is handled in one go
+                    while (batch.size() < MAX_BATCH && reader.ready() && (line = reader.readLine()) != null) {
+                        batch.add(line);
+                    }
+
+                    if (size >= MAX_LOG_SIZE) {
+                        writer.close();
+                        rotateIfNeeded(logFile);
+                        writer = openLog();
+                        size = 0;
+                    }
+                    for (String l : batch) {
+                        if (!listeningPort.isDone()) {
+                            Matcher matcher = LISTENING.matcher(l);
+                            if (matcher.find()) {
+                                listeningPort.complete(Integer.valueOf(matcher.group(1)));
+                            }
+                        }
+                        writer.write(l);
+                        writer.newLine();
+                        size += l.length() + 1;
+                    }
+                    writer.flush();
+
+                    List<String> lines = List.copyOf(batch);
+                    synchronized (recent) {
+                        for (String l : lines) {
+                            if (recent.size() == RECENT_LINES) {
+                                recent.removeFirst();
+                            }
+                            recent.addLast(l);
+                        }
+                        if (listener != null) {
+                            publish(listener, lines);
+                        }
+                    }
+                    batch.clear();
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            LOG.debug("Stopped reading the Chappie Server log", e);
+        } finally {
+            listeningPort.completeExceptionally(new IllegalStateException("Chappie Server stopped"));
+        }
+    }
+
+    private BufferedWriter openLog() throws IOException {
+        return Files.newBufferedWriter(logFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static void publish(Consumer<List<String>> listener, List<String> lines) {
+        try {
+            listener.accept(lines);
+        } catch (RuntimeException e) {
+            LOG.debug("Could not pass on Chappie Server log lines", e);
+        }
+    }
+}
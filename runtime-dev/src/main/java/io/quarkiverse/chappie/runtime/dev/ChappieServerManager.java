@@ -1,31 +1,40 @@
 package io.quarkiverse.chappie.runtime.dev;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.UncheckedIOException;
-import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.SubmissionPublisher;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -50,12 +59,20 @@ import io.smallrye.mutiny.subscription.Cancellable;
 public class ChappieServerManager {
     private static final Logger LOG = Logger.getLogger(ChappieServerManager.class);
     private final SubmissionPublisher<String> logPublisher = new SubmissionPublisher<>();
-    private ScheduledExecutorService logExecutor;
-    private volatile boolean logStreaming = false;
-    private Future<?> logTask;
+    private final ScheduledExecutorService scheduler = ChappieExecutors.newScheduler("chappie-scheduler");
+    private final ExecutorService bootstrapExecutor = ChappieExecutors.newExecutor("chappie-bootstrap");
+    // Completes once the server is installed, and started when it is configured
+    private volatile CompletableFuture<Void> bootstrap = CompletableFuture.completedFuture(null);
+    // Like the process itself, the log reader outlives a restart of the application
+    private static volatile ChappieServerLog serverLog;
+    // The port of a shared server we started, found in its output file
+    private static volatile CompletableFuture<Integer> sharedListeningPort;
+    private static volatile ChappieSharedServer sharedServer;
 
     private ChappieAssistant assistant;
     private String version;
+    private String serverChecksum;
+    private volatile String configurationKey;
     private String quarkusVersion;
     private Map<String, String> chappieRAGProperties;
 
@@ -73,6 +90,9 @@ public class ChappieServerManager {
 
     private Cancellable subscription;
 
+    private ScheduledFuture<?> scheduledStart;
+    private boolean scheduledMcpRefresh;
+
     void start(@Observes StartupEvent ev) {
         subscription = mcpEventStream
                 .onOverflow().buffer(256)
@@ -101,21 +121,28 @@ public class ChappieServerManager {
         setCurrentProcess.accept(process);
     }
 
-    public SubmissionPublisher<String> init(String version, String quarkusVersion, ChappieAssistant assistant,
-            Map<String, String> chappieRAGProperties, String devMcpPath) {
+    /**
+     * @param serverChecksum the SHA-256 of the server jar that comes with this extension, or null if unknown
+     */
+    public SubmissionPublisher<String> init(String version, String serverChecksum, String quarkusVersion,
+            ChappieAssistant assistant, Map<String, String> chappieRAGProperties, String devMcpPath) {
         this.assistant = assistant;
         this.version = version;
+        this.serverChecksum = serverChecksum;
         this.quarkusVersion = quarkusVersion;
         this.chappieRAGProperties = chappieRAGProperties;
         this.devMcpPath = devMcpPath;
-        if (Files.notExists(configDir)) {
+        if (Files.notExists(logFile.getParent())) {
             try {
-                Files.createDirectories(configDir);
+                Files.createDirectories(logFile.getParent());
             } catch (IOException ex) {
                 throw new UncheckedIOException(ex);
             }
         }
 
+        config.watch();
+
+        ChappieServerLog.rotateIfNeeded(logFile);
         if (Files.notExists(logFile)) {
             try {
                 Files.createFile(logFile);
@@ -124,16 +151,44 @@ public class ChappieServerManager {
             }
         }
 
-        // Make sure chappie server is installed
-        if (!isInstalled()) {
-            install(version);
+        // Installing and starting the server takes a while, so do not hold up the start of the application
+        boolean configured = isConfigured();
+        if (configured) {
+            setAssistantStarting(null);
         }
+        this.bootstrap = CompletableFuture.runAsync(() -> bootstrap(configured), bootstrapExecutor);
+        this.bootstrapExecutor.shutdown();
+        return this.logPublisher;
+    }
 
-        // Make sure we start the server if it's configured
-        if (isConfigured()) {
-            start();
+    private void bootstrap(boolean configured) {
+        try {
+            // Make sure chappie server is installed
+            if (!isInstalled()) {
+                status("Installing Quarkus Assistant Server " + version);
+                install(version);
+            }
+
+            // Make sure we start the server if it's configured
+            if (configured && isConfigured()) {
+                status("Starting Quarkus Assistant Server " + version);
+                start(false);
+            } else if (configured) {
+                setAssistantBaseUrl(null);
+            }
+        } catch (RuntimeException ex) {
+            status("Quarkus Assistant Server could not start: " + ex.getMessage());
+            setAssistantFailed(null, ex);
+            throw ex;
         }
-        return this.logPublisher;
+    }
+
+    /**
+     * Show progress in the footer, next to the output of the server
+     */
+    private void status(String message) {
+        LOG.debug(message);
+        logPublisher.offer(message, null);
     }
 
     @Produces
@@ -150,12 +205,17 @@ public class ChappieServerManager {
     }
 
     private boolean isInstalled() {
-        if (version.endsWith("SNAPSHOT"))
-            return false; // Always re-install snapshot
         Path chappieBase = getChappieBaseDir(version);
         if (Files.exists(chappieBase)) {
             Path chappieServer = getChappieServer(chappieBase);
-            return Files.exists(chappieServer);
+            if (!Files.exists(chappieServer)) {
+                return false;
+            }
+            if (this.serverChecksum != null) {
+                // The same version can be built more than once (like a SNAPSHOT), so compare the content
+                return this.serverChecksum.equals(readChecksum(chappieBase));
+            }
+            return !version.endsWith("SNAPSHOT"); // Always re-install snapshot
         }
         return false;
     }
@@ -163,6 +223,7 @@ public class ChappieServerManager {
     private void install(String version) {
         try {
             ClassPathUtils.consumeAsStreams("/bin/" + CHAPPIE_SERVER, (InputStream t) -> {
+                Path temp = null;
                 try {
                     Path chappieBase = getChappieBaseDir(version);
 
@@ -170,13 +231,28 @@ public class ChappieServerManager {
                         Files.createDirectories(chappieBase);
                     }
                     Path chappieServer = getChappieServer(chappieBase);
-                    File extractedFile = chappieServer.toFile();
+                    Path checksumFile = chappieBase.resolve(CHAPPIE_SERVER + CHECKSUM_EXTENSION);
+                    Files.deleteIfExists(checksumFile);
 
-                    try (FileOutputStream outputStream = new FileOutputStream(extractedFile)) {
+                    // Another application can start the server while we install, so never expose a partial jar
+                    temp = Files.createTempFile(chappieBase, CHAPPIE_SERVER, ".tmp");
+                    try (FileOutputStream outputStream = new FileOutputStream(temp.toFile())) {
                         t.transferTo(outputStream);
                     }
+                    moveAtomically(temp, chappieServer);
+
+                    if (this.serverChecksum != null) {
+                        Files.writeString(checksumFile, this.serverChecksum);
+                    }
+                    deleteClassDataArchives(chappieBase);
                 } catch (IOException ex) {
                     LOG.error("Error saving Quarkus Assistant Server", ex);
+                    if (temp != null) {
+                        try {
+                            Files.deleteIfExists(temp);
+                        } catch (IOException ignored) {
+                        }
+                    }
                 }
             });
         } catch (IOException ioe) {
@@ -184,47 +260,81 @@ public class ChappieServerManager {
         }
     }
 
-    private void handleMcpEvent(McpEvent evt) {
-        start();
+    private static String readChecksum(Path chappieBase) {
+        Path checksumFile = chappieBase.resolve(CHAPPIE_SERVER + CHECKSUM_EXTENSION);
+        try {
+            return Files.exists(checksumFile) ? Files.readString(checksumFile).trim() : null;
+        } catch (IOException ex) {
+            return null;
+        }
     }
 
-    public boolean isConfigured() {
-        Properties properties = this.loadConfiguration(null);
-        return properties.containsKey(KEY_NAME);
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
     }
 
-    public Properties loadConfiguration(String name) {
-        Properties fullProps = new Properties();
+    private void handleMcpEvent(McpEvent evt) {
+        scheduleStart(true);
+    }
 
-        if (Files.exists(configFile)) {
-            try (InputStream in = Files.newInputStream(configFile)) {
-                fullProps.load(in);
-            } catch (IOException ex) {
-                ex.printStackTrace();
-            }
+    /**
+     * Start the server once things settled down. MCP events come in bursts, for example when an extension registers its
+     * tools, and users save the configuration a few times in a row, so we only act on the last of those.
+     */
+    private synchronized void scheduleStart(boolean refreshMcp) {
+        this.scheduledMcpRefresh |= refreshMcp;
+        if (this.scheduledStart != null) {
+            this.scheduledStart.cancel(false);
         }
-
-        if (name == null || name.isBlank()) {
-            name = fullProps.getProperty("name");
+        try {
+            this.scheduledStart = scheduler.schedule(this::runScheduledStart, START_DEBOUNCE.toMillis(),
+                    TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            LOG.debug("Not starting Chappie Server, shutting down");
         }
+    }
 
-        if (name == null || name.isBlank()) {
-            return new Properties(); // or throw if name is mandatory
+    private synchronized void cancelScheduledStart() {
+        if (this.scheduledStart != null) {
+            this.scheduledStart.cancel(false);
+            this.scheduledStart = null;
         }
+        this.scheduledMcpRefresh = false;
+    }
 
-        Properties scopedProps = new Properties();
-        scopedProps.setProperty("name", name);
+    private void runScheduledStart() {
+        if (!this.bootstrap.isDone()) {
+            // Wait for the first start, it might already use the new configuration
+            this.bootstrap.whenComplete((ignored, failure) -> scheduleStart(false));
+            return;
+        }
+        boolean refreshMcp;
+        synchronized (this) {
+            refreshMcp = this.scheduledMcpRefresh;
+            this.scheduledMcpRefresh = false;
+            this.scheduledStart = null;
+        }
+        if (isConfigured()) {
+            start(refreshMcp);
+        }
+    }
 
-        String prefix = name + ".";
+    public boolean isConfigured() {
+        return config.snapshot().active().containsKey(KEY_NAME);
+    }
 
-        for (String key : fullProps.stringPropertyNames()) {
-            if (key.startsWith(prefix)) {
-                String trimmedKey = key.substring(prefix.length());
-                scopedProps.setProperty(trimmedKey, fullProps.getProperty(key));
-            }
+    public Properties loadConfiguration(String name) {
+        ChappieConfigFile.Snapshot snapshot = config.snapshot();
+        if (name == null || name.isBlank() || name.equals(snapshot.active().getProperty(KEY_NAME))) {
+            Properties copy = new Properties();
+            copy.putAll(snapshot.active());
+            return copy;
         }
-
-        return scopedProps;
+        return ChappieConfigFile.scope(snapshot.full(), name);
     }
 
     public boolean storeConfiguration(Map<String, String> configuration) {
@@ -247,7 +357,7 @@ public class ChappieServerManager {
         }
 
         // Store configuration
-        return saveFullConfiguration(existingProps, this::start);
+        return saveFullConfiguration(existingProps, () -> scheduleStart(false));
     }
 
     public boolean clearConfiguration() {
@@ -258,32 +368,20 @@ public class ChappieServerManager {
 
     private Properties readFullConfiguration() {
         Properties existingProps = new Properties();
-
-        // Load existing configuration if present
-        if (Files.exists(configFile)) {
-            try (InputStream in = Files.newInputStream(configFile)) {
-                existingProps.load(in);
-            } catch (IOException ex) {
-                ex.printStackTrace();
-            }
-        }
+        existingProps.putAll(config.snapshot().full());
         return existingProps;
     }
 
     private boolean saveFullConfiguration(Properties p, Runnable postAction) {
-        try (OutputStream out = Files.newOutputStream(configFile)) {
-            p.store(out, "Chappie Configuration");
+        if (config.store(p)) {
             postAction.run();
             return true;
-        } catch (IOException ex) {
-            ex.printStackTrace();
-            return false;
         }
+        return false;
     }
 
     public String getConfiguredProviderName() {
-        Properties properties = this.loadConfiguration(null);
-        return properties.getProperty(KEY_NAME, null);
+        return config.snapshot().active().getProperty(KEY_NAME, null);
     }
 
     public boolean isRunning() {
@@ -291,28 +389,42 @@ public class ChappieServerManager {
         return process != null && process.isAlive();
     }
 
-    private Map<String, String> start() {
+    /**
+     * @param refreshMcp the MCP tools changed, so a server that keeps running should reload them
+     */
+    private Map<String, String> start(boolean refreshMcp) {
         Map<String, String> chappieServerArguments = getChappieServerArguments();
+        this.configurationKey = configurationKey(chappieServerArguments);
+        boolean shared = isSharedServer();
         if (isRunning()) {
             Map<String, String> arguments = getCurrentProcessArguments();
-            if (containsSameKeyValue(arguments, chappieServerArguments)) {
+            boolean sameConfiguration = shared
+                    ? configurationKey(arguments).equals(configurationKey(chappieServerArguments))
+                    : isSameConfiguration(arguments, chappieServerArguments);
+            if (sameConfiguration && reconnect(arguments)) {
                 LOG.debug("Chappie Server is already running with the same configuration");
-                String chappieServerBase = "http://" + chappieServerArguments.get(SERVER_PROPERTY_KEY_HOST) + ":"
-                        + chappieServerArguments.get(SERVER_PROPERTY_KEY_PORT);
-
-                setAssistantBaseUrl(chappieServerBase);
+                startStreamingLog();
+                if (refreshMcp) {
+                    refreshMcp();
+                }
                 return arguments;
             } else {
                 LOG.debug("Chappie Server is already running with a different configuration, restarting...");
             }
-            stop();
+            stopProcess();
+        }
+
+        if (shared && attachSharedServer(chappieServerArguments)) {
+            return chappieServerArguments;
         }
 
         try {
-            Path chappieServer = getChappieServer(this.version);
+            Path chappieBase = getChappieBaseDir(this.version);
+            Path chappieServer = getChappieServer(chappieBase);
 
             List<String> command = new ArrayList<>();
             command.add(getJavaExecutable());
+            command.addAll(getJvmOptions(chappieBase, chappieServerArguments));
             for (Map.Entry<String, String> es : chappieServerArguments.entrySet()) {
                 command.add("-D" + es.getKey() + "=" + es.getValue());
             }
@@ -322,18 +434,48 @@ public class ChappieServerManager {
 
             LOG.debug("Starting Chappie Server with command: " + maskSensitiveValues(command));
             ProcessBuilder processBuilder = new ProcessBuilder(command)
-                    .redirectOutput(logFile.toFile())
                     .redirectErrorStream(true);
+            Path output = null;
+            if (shared) {
+                // The server can outlive us, so it should not write to a pipe we read
+                output = getSharedServer().newOutput();
+                processBuilder.redirectOutput(ProcessBuilder.Redirect.appendTo(output.toFile()));
+            }
 
-            ProcessHandle handle = processBuilder.start().toHandle();
+            Process process = processBuilder.start();
+            serverLog = shared ? null : ChappieServerLog.attach(process, logFile);
+            ProcessHandle handle = process.toHandle();
             setProcess(handle);
 
-            chappieServerArguments.put("processId", String.valueOf(handle.pid()));
-
-            String chappieServerBase = "http://" + chappieServerArguments.get(SERVER_PROPERTY_KEY_HOST) + ":"
-                    + chappieServerArguments.get(SERVER_PROPERTY_KEY_PORT);
-
-            setAssistantBaseUrl(chappieServerBase);
+            chappieServerArguments.put(KEY_PROCESS_ID, String.valueOf(handle.pid()));
+
+            // The server needs a few seconds before it listens, requests made until then wait for it
+            String host = chappieServerArguments.get(SERVER_PROPERTY_KEY_HOST);
+            String port = chappieServerArguments.get(SERVER_PROPERTY_KEY_PORT);
+            String configuration = configurationKey(chappieServerArguments);
+            if (EPHEMERAL_PORT.equals(port)) {
+                CompletableFuture<Integer> listeningPort;
+                if (shared) {
+                    // Only share the server once we know where it listens
+                    Path sharedOutput = output;
+                    listeningPort = ChappieServerLog.listeningPort(output, handle, scheduler);
+                    listeningPort.thenAccept(p -> getSharedServer().register(handle,
+                            toBaseUrl(host, String.valueOf(p)), configuration, sharedOutput));
+                } else {
+                    listeningPort = serverLog.listeningPort();
+                }
+                sharedListeningPort = shared ? listeningPort : null;
+                setAssistantStarting(null);
+                awaitListening(listeningPort, host, handle, shared ? output : logFile);
+            } else {
+                sharedListeningPort = null;
+                if (shared) {
+                    getSharedServer().register(handle, toBaseUrl(host, port), configuration, output);
+                }
+                String chappieServerBase = toBaseUrl(host, port);
+                setAssistantStarting(chappieServerBase);
+                awaitReadiness(chappieServerBase, handle);
+            }
 
             startStreamingLog();
 
@@ -343,15 +485,243 @@ public class ChappieServerManager {
         }
     }
 
-    private static boolean containsSameKeyValue(Map<String, String> args, Map<String, String> otherArgs) {
-        if (args == null || otherArgs == null) {
+    /**
+     * Use the server another application registered, if it runs with the same configuration
+     */
+    private boolean attachSharedServer(Map<String, String> chappieServerArguments) {
+        Optional<ChappieSharedServer.Server> server = getSharedServer()
+                .attach(configurationKey(chappieServerArguments));
+        if (server.isEmpty()) {
             return false;
         }
-        if (args.size() != otherArgs.size()) {
+        LOG.debugf("Using the Chappie Server shared by another application on %s", server.get().baseUrl());
+        serverLog = null;
+        sharedListeningPort = null;
+        setProcess(server.get().process());
+        setAssistantStarting(server.get().baseUrl());
+        awaitReadiness(server.get().baseUrl(), server.get().process());
+        return true;
+    }
+
+    /**
+     * Identifies what the answers of a server depend on. Shared servers are compared on it as well: the MCP server and
+     * the project are the ones of the application that started the server, the port is picked when it starts.
+     */
+    private static String configurationKey(Map<String, String> args) {
+        Map<String, String> stable = new TreeMap<>(stableArguments(args));
+        stable.keySet().removeAll(APPLICATION_ARGUMENTS);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(stable.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            return stable.toString();
+        }
+    }
+
+    private boolean isSharedServer() {
+        return "true".equalsIgnoreCase(getServerProperty(KEY_SHARED_SERVER));
+    }
+
+    private ChappieSharedServer getSharedServer() {
+        if (sharedServer == null) {
+            sharedServer = new ChappieSharedServer(getChappieBaseDir(this.version).resolve("shared"));
+        }
+        return sharedServer;
+    }
+
+    /**
+     * Stop using this server
+     *
+     * @return true if the server can be stopped, false if other applications still use it
+     */
+    static boolean detach(ProcessHandle process) {
+        ChappieSharedServer current = sharedServer;
+        return current == null || current.release(process);
+    }
+
+    /**
+     * Use the server that is running already. Its port is in its arguments, or it picked one and told us in its output.
+     * A shared server that another application started is in the registry.
+     *
+     * @return false if we do not know how to reach the server
+     */
+    private boolean reconnect(Map<String, String> arguments) {
+        String host = arguments.get(SERVER_PROPERTY_KEY_HOST);
+        String port = arguments.get(SERVER_PROPERTY_KEY_PORT);
+        if (!EPHEMERAL_PORT.equals(port)) {
+            setAssistantBaseUrl(toBaseUrl(host, port));
+            return true;
+        }
+        ChappieServerLog current = serverLog;
+        CompletableFuture<Integer> listeningPort = current != null ? current.listeningPort() : sharedListeningPort;
+        if (listeningPort == null) {
+            Optional<String> baseUrl = isSharedServer() ? getSharedServer().baseUrl(getProcess()) : Optional.empty();
+            baseUrl.ifPresent(this::setAssistantBaseUrl);
+            return baseUrl.isPresent();
+        }
+        if (!listeningPort.isDone()) {
+            setAssistantStarting(null);
+            awaitListening(listeningPort, host, getProcess(), logFile);
+            return true;
+        }
+        if (listeningPort.isCompletedExceptionally()) {
             return false;
         }
-        return args.entrySet().stream()
-                .allMatch(e -> Objects.equals(otherArgs.get(e.getKey()), e.getValue()));
+        setAssistantBaseUrl(toBaseUrl(host, String.valueOf(listeningPort.join())));
+        return true;
+    }
+
+    /**
+     * Wait for the server to tell us which port it picked, then wait for it to be ready
+     */
+    private void awaitListening(CompletableFuture<Integer> listeningPort, String host, ProcessHandle process,
+            Path output) {
+        listeningPort.copy()
+                .orTimeout(READINESS_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((port, failure) -> {
+                    if (!process.equals(getProcess())) {
+                        return; // Replaced by another server in the meantime
+                    }
+                    if (failure != null) {
+                        setAssistantFailed(null, new IllegalStateException(
+                                "Chappie Server did not start listening, see " + output + " for details", failure));
+                    } else {
+                        String chappieServerBase = toBaseUrl(host, String.valueOf(port));
+                        setAssistantStarting(chappieServerBase);
+                        awaitReadiness(chappieServerBase, process);
+                    }
+                });
+    }
+
+    private static String toBaseUrl(String host, String port) {
+        return "http://" + host + ":" + port;
+    }
+
+    private void awaitReadiness(String baseUrl, ProcessHandle process) {
+        long deadline = System.nanoTime() + READINESS_TIMEOUT.toNanos();
+        pollReadiness(baseUrl, process, READINESS_INITIAL_DELAY, deadline);
+    }
+
+    private void pollReadiness(String baseUrl, ProcessHandle process, Duration delay, long deadline) {
+        try {
+            scheduler.schedule(() -> {
+                if (!process.equals(getProcess())) {
+                    return; // Replaced by another server in the meantime
+                }
+                if (!process.isAlive()) {
+                    setAssistantFailed(baseUrl, new IllegalStateException(
+                            "Chappie Server stopped before it was ready, see " + logFile + " for details"));
+                    return;
+                }
+                assistant.probe(baseUrl, READINESS_PROBE_TIMEOUT).thenAccept(ready -> {
+                    if (ready) {
+                        LOG.debugf("Chappie Server is ready on %s", baseUrl);
+                        setAssistantBaseUrl(baseUrl);
+                    } else if (System.nanoTime() - deadline > 0) {
+                        setAssistantFailed(baseUrl, new IllegalStateException(
+                                "Chappie Server did not become ready within " + READINESS_TIMEOUT.toSeconds() + "s"));
+                    } else {
+                        Duration next = delay.multipliedBy(2);
+                        pollReadiness(baseUrl, process, next.compareTo(READINESS_MAX_DELAY) > 0 ? READINESS_MAX_DELAY : next,
+                                deadline);
+                    }
+                });
+            }, delay.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            LOG.debug("Not waiting for Chappie Server anymore, shutting down");
+        }
+    }
+
+    /**
+     * The JVM options for the server. Class data sharing keeps the classes the server loaded on the first run in an
+     * archive, which makes the next launches start a lot faster.
+     */
+    private List<String> getJvmOptions(Path chappieBase, Map<String, String> chappieServerArguments) {
+        List<String> options = new ArrayList<>();
+        if (!"false".equalsIgnoreCase(getServerProperty(KEY_CDS))) {
+            Path archive = chappieBase.resolve("chappie-server-"
+                    + Runtime.version().toString().replaceAll("[^A-Za-z0-9._-]", "_") + CDS_ARCHIVE_EXTENSION);
+            if (Runtime.version().feature() >= 19) {
+                // The JVM creates the archive, and recreates it when it does not match the server anymore
+                options.add("-XX:SharedArchiveFile=" + archive);
+                options.add("-XX:+AutoCreateSharedArchive");
+            } else if (Files.exists(archive)) {
+                options.add("-XX:SharedArchiveFile=" + archive);
+            } else {
+                options.add("-XX:ArchiveClassesAtExit=" + archive);
+            }
+        }
+        String jvmOptions = chappieServerArguments.get(SERVER_PROPERTY_KEY_JVM_OPTIONS);
+        if (jvmOptions != null) {
+            options.addAll(List.of(jvmOptions.split(" ")));
+        }
+        return options;
+    }
+
+    private void deleteClassDataArchives(Path chappieBase) throws IOException {
+        try (Stream<Path> files = Files.list(chappieBase)) {
+            for (Path archive : files.filter(f -> f.getFileName().toString().endsWith(CDS_ARCHIVE_EXTENSION)).toList()) {
+                Files.deleteIfExists(archive);
+            }
+        }
+    }
+
+    /**
+     * A setting for the server rather than for a provider. It can be set for all providers, or for one provider only.
+     */
+    private String getServerProperty(String key) {
+        ChappieConfigFile.Snapshot snapshot = config.snapshot();
+        return snapshot.active().getProperty(key, snapshot.full().getProperty(key));
+    }
+
+    /**
+     * Compare the configuration of two servers, ignoring the arguments that change from one launch to the next
+     */
+    private static boolean isSameConfiguration(Map<String, String> args, Map<String, String> otherArgs) {
+        if (args == null || otherArgs == null) {
+            return false;
+        }
+        return stableArguments(args).equals(stableArguments(otherArgs));
+    }
+
+    private static Map<String, String> stableArguments(Map<String, String> args) {
+        Map<String, String> stable = new HashMap<>(args);
+        stable.keySet().removeAll(VOLATILE_ARGUMENTS);
+        return stable;
+    }
+
+    /**
+     * A running server can reload the tools of its MCP servers, so there is no need to start a new one
+     */
+    private void refreshMcp() {
+        assistant.refreshMcp().whenComplete((refreshed, failure) -> {
+            if (failure != null) {
+                LOG.debug("Could not refresh the MCP tools of the Chappie Server", failure);
+            } else if (!refreshed) {
+                LOG.debug("This Chappie Server can not refresh its MCP tools");
+            }
+        });
+    }
+
+    /**
+     * Stop the running server before starting one with another configuration
+     */
+    private void stopProcess() {
+        stopStreamingLog();
+        ProcessHandle process = getProcess();
+        if (process != null && process.isAlive() && detach(process)) {
+            process.destroy();
+            try {
+                process.onExit().get(STOP_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                process.destroyForcibly();
+            } catch (ExecutionException ex) {
+                LOG.debug("Could not wait for the Chappie Server to stop", ex);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 
     private Map<String, String> getCurrentProcessArguments() {
@@ -375,6 +745,7 @@ public class ChappieServerManager {
     }
 
     public void stop() {
+        cancelScheduledStart();
         if (isRunning()) {
             setAssistantBaseUrl(null);
             stopStreamingLog();
@@ -382,42 +753,35 @@ public class ChappieServerManager {
     }
 
     private void startStreamingLog() {
-        logStreaming = true;
-        this.logExecutor = Executors.newSingleThreadScheduledExecutor();
-        logExecutor.scheduleWithFixedDelay(() -> {
-            try (BufferedReader reader = new BufferedReader(new FileReader(logFile.toFile()))) {
-                String line;
-                while (logStreaming) {
-                    if ((line = reader.readLine()) != null) {
-                        logPublisher.submit(line);
-                    }
-                }
-            } catch (Exception e) {
-                logPublisher.closeExceptionally(e);
-                if (logExecutor != null && !logExecutor.isShutdown()) {
-                    logExecutor.shutdownNow();
+        ChappieServerLog current = serverLog;
+        if (current != null) {
+            current.setListener(lines -> {
+                for (String line : lines) {
+                    // Drop lines rather than block the reader when the footer can not keep up
+                    logPublisher.offer(line, null);
                 }
-            } finally {
-                //publisher.close();
-            }
-        }, 0, 200, TimeUnit.MILLISECONDS);
+            });
+        }
     }
 
     private void stopStreamingLog() {
-        logStreaming = false;
-        if (logTask != null) {
-            logTask.cancel(true);
+        ChappieServerLog current = serverLog;
+        if (current != null) {
+            current.setListener(null);
         }
-        if (logExecutor != null && !logExecutor.isShutdown()) {
-            logExecutor.shutdownNow();
-        }
-        //publisher.close();
     }
 
     @PreDestroy
     public void destroy() {
         try (logPublisher) {
             stop();
+        } finally {
+            scheduler.shutdownNow();
+            bootstrapExecutor.shutdownNow();
+            config.close();
+            if (this.assistant != null) {
+                this.assistant.close();
+            }
         }
     }
 
@@ -445,26 +809,20 @@ public class ChappieServerManager {
         return Paths.get(System.getProperty("java.home"), "bin", javaExecutableName).toString();
     }
 
-    private int findAvailablePort(int startPort) {
-        int port = startPort;
-        while (true) {
-            try (ServerSocket serverSocket = new ServerSocket(port)) {
-                return port;
-            } catch (IOException e) {
-                port++;
-            }
-        }
-    }
-
     private Map<String, String> getChappieServerArguments() {
-        Properties providerProperties = this.loadConfiguration(null);
+        Properties providerProperties = config.snapshot().active();
         if (providerProperties.containsKey(KEY_NAME)) {
             String provider = providerProperties.getProperty(KEY_NAME);
 
             Map<String, String> properties = new HashMap<>();
-            int port = findAvailablePort(4315);
             properties.put(SERVER_PROPERTY_KEY_HOST, "localhost");
-            properties.put(SERVER_PROPERTY_KEY_PORT, String.valueOf(port));
+            // By default the server picks a free port itself, and tells us which one in its output
+            String serverPort = getServerProperty(KEY_SERVER_PORT);
+            if (serverPort != null && !serverPort.isBlank()) {
+                properties.put(SERVER_PROPERTY_KEY_PORT, serverPort.trim());
+            } else {
+                properties.put(SERVER_PROPERTY_KEY_PORT, EPHEMERAL_PORT);
+            }
             properties.put("chappie.log.request", "true");
             properties.put("chappie.log.response", "true");
 
@@ -577,6 +935,24 @@ public class ChappieServerManager {
                         System.getProperty("user.dir"));
             }
 
+            // Extra JVM options. System properties are passed like the other server arguments, the other options are
+            // kept as one argument so that changing them restarts the server
+            String jvmOptions = getServerProperty(KEY_JVM_OPTIONS);
+            if (jvmOptions != null && !jvmOptions.isBlank()) {
+                List<String> flags = new ArrayList<>();
+                for (String option : jvmOptions.trim().split("\\s+")) {
+                    if (option.startsWith("-D")) {
+                        String[] keyValue = option.substring(2).split("=", 2);
+                        properties.put(keyValue[0], keyValue.length == 2 ? keyValue[1] : "");
+                    } else {
+                        flags.add(option);
+                    }
+                }
+                if (!flags.isEmpty()) {
+                    properties.put(SERVER_PROPERTY_KEY_JVM_OPTIONS, String.join(" ", flags));
+                }
+            }
+
             // MCP Settings
             String mcpEnabled = providerProperties.getProperty("mcpEnabled");
             if (mcpEnabled != null && !mcpEnabled.isBlank() && mcpEnabled.equalsIgnoreCase("false")) {
@@ -629,14 +1005,51 @@ public class ChappieServerManager {
 
     private void setAssistantBaseUrl(String baseUrl) {
         this.assistant.setBaseUrl(baseUrl);
+        publishAssistantState(baseUrl, null, null);
+    }
 
-        Map<String, String> m = new HashMap<>();
+    private void setAssistantStarting(String baseUrl) {
+        this.assistant.starting(baseUrl);
+        publishAssistantState(baseUrl, STATE_STARTING, null);
+    }
+
+    private void setAssistantFailed(String baseUrl, Throwable cause) {
+        LOG.error(cause.getMessage());
+        this.assistant.markFailed(cause);
+        publishAssistantState(baseUrl, STATE_FAILED, cause.getMessage());
+    }
+
+    private void publishAssistantState(String baseUrl, String state, String message) {
+        Map<String, String> m = getAssistantSettings();
+        this.assistant.configure(m);
         if (baseUrl != null) {
             m.put("baseUrl", baseUrl);
         }
+        if (state != null) {
+            m.put("state", state);
+        }
+        if (message != null) {
+            m.put("message", message);
+        }
         DevConsoleManager.invoke("chappie.setBaseUrl", m);
     }
 
+    private Map<String, String> getAssistantSettings() {
+        Map<String, String> settings = new HashMap<>();
+        if (this.configurationKey != null) {
+            settings.put(ChappieAssistant.SETTING_CONFIGURATION, this.configurationKey);
+        }
+        settings.put(ChappieAssistant.SETTING_CACHE,
+                String.valueOf("true".equalsIgnoreCase(getServerProperty(KEY_CACHE))));
+        for (String key : ASSISTANT_SETTINGS) {
+            String value = getServerProperty(key);
+            if (value != null) {
+                settings.put(key, value);
+            }
+        }
+        return settings;
+    }
+
     private String getDevMCPServerUrl() {
         Config c = ConfigProvider.getConfig();
         String host = c.getValue("quarkus.http.host", String.class);
@@ -704,11 +1117,19 @@ public class ChappieServerManager {
 
     private final Path configDir = Paths.get(System.getProperty("user.home"), ".quarkus", "chappie");
     private final Path configFile = configDir.resolve("chappie-assistant.properties");
-    private final Path logFile = configDir.resolve("chappie-assistant.log");
+    private final ChappieConfigFile config = new ChappieConfigFile(configFile);
+    // Not next to the configuration, as that directory is watched and the log changes all the time
+    private final Path logFile = configDir.resolve("logs").resolve("chappie-assistant.log");
 
     private static final String CHAPPIE_SERVER = "chappie-server.jar";
+    private static final String CHECKSUM_EXTENSION = ".sha256";
 
     public static final String KEY_NAME = "name";
+    public static final String KEY_JVM_OPTIONS = "jvmOptions";
+    public static final String KEY_CDS = "cds";
+    public static final String KEY_SERVER_PORT = "serverPort";
+    public static final String KEY_SHARED_SERVER = "sharedServer";
+    public static final String KEY_CACHE = "cache";
 
     public static final String OPEN_AI = "OpenAI";
     public static final String PODMAN_AI = "Podman AI";
@@ -721,5 +1142,31 @@ public class ChappieServerManager {
 
     private static final String SERVER_PROPERTY_KEY_HOST = "quarkus.http.host";
     private static final String SERVER_PROPERTY_KEY_PORT = "quarkus.http.port";
+    private static final String SERVER_PROPERTY_KEY_JVM_OPTIONS = "chappie.jvm-options";
+    private static final String KEY_PROCESS_ID = "processId";
+    // Passed on to the assistant as they are
+    private static final List<String> ASSISTANT_SETTINGS = List.of(ChappieAssistant.SETTING_CACHE_TTL_MINUTES,
+            ChappieAssistant.SETTING_CACHE_MAX_ENTRIES, ChappieAssistant.SETTING_CONNECT_TIMEOUT_SECONDS,
+            ChappieAssistant.SETTING_ASSIST_TIMEOUT_SECONDS, ChappieAssistant.SETTING_REQUEST_TIMEOUT_SECONDS,
+            ChappieAssistant.SETTING_RETRIES, ChappieAssistant.SETTING_TOKEN_BUDGET);
+    // Arguments that differ between launches of a server with the same configuration
+    private static final Set<String> VOLATILE_ARGUMENTS = Set.of(KEY_PROCESS_ID);
+    private static final String EPHEMERAL_PORT = "0";
+    // Arguments that come from the application that starts the server
+    private static final Set<String> APPLICATION_ARGUMENTS = Set.of(SERVER_PROPERTY_KEY_PORT, "chappie.mcp.servers",
+            "chappie.rag.project-dir");
+
+    private static final Duration START_DEBOUNCE = Duration.ofMillis(500);
+    private static final Duration STOP_TIMEOUT = Duration.ofSeconds(10);
+    private static final String CDS_ARCHIVE_EXTENSION = ".jsa";
+
+    // Without a state the base url is the one of a ready server, or null when there is none
+    public static final String STATE_STARTING = "starting";
+    public static final String STATE_FAILED = "failed";
+
+    private static final Duration READINESS_INITIAL_DELAY = Duration.ofMillis(100);
+    private static final Duration READINESS_MAX_DELAY = Duration.ofSeconds(2);
+    private static final Duration READINESS_PROBE_TIMEOUT = Duration.ofSeconds(1);
+    private static final Duration READINESS_TIMEOUT = Duration.ofSeconds(120);
 
 }
@@ -0,0 +1,62 @@
+package io.quarkiverse.chappie.runtime.dev;
+
+/**
+ * The conversation state of one caller. Every request holds on to the session it started with, so concurrent requests
+ * from other callers can not change the memoryId or title underneath it.
+ */
+public final class ChappieSession {
+
+    private final String key;
+    private volatile String memoryId;
+    private volatile String title;
+    private volatile String action;
+    private volatile long lastAccess;
+
+    ChappieSession(String key) {
+        this.key = key;
+        touch();
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getMemoryId() {
+        return memoryId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * The MCP tool suggested in the last answer, if any
+     */
+    public String getAction() {
+        return action;
+    }
+
+    public boolean hasMemoryId() {
+        return memoryId != null && !memoryId.isBlank();
+    }
+
+    void setMemoryId(String memoryId) {
+        this.memoryId = memoryId;
+    }
+
+    void setTitle(String title) {
+        this.title = title;
+    }
+
+    void setAction(String action) {
+        this.action = action;
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    void touch() {
+        this.lastAccess = System.currentTimeMillis();
+    }
+}
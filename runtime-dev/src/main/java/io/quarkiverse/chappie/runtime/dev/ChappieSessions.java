@@ -0,0 +1,69 @@
+package io.quarkiverse.chappie.runtime.dev;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of conversations, keyed by caller. Bounded in size, and sessions that have not been used for a while are
+ * evicted.
+ */
+final class ChappieSessions {
+
+    private final ConcurrentHashMap<String, ChappieSession> sessions = new ConcurrentHashMap<>();
+    private final int maxSessions;
+    private final long maxIdleMillis;
+    private volatile ChappieSession mostRecent;
+
+    ChappieSessions(int maxSessions, Duration maxIdle) {
+        this.maxSessions = maxSessions;
+        this.maxIdleMillis = maxIdle.toMillis();
+    }
+
+    /**
+     * Get the session for this key, creating it if needed
+     */
+    ChappieSession get(String key) {
+        ChappieSession session = sessions.get(key);
+        if (session == null) {
+            session = sessions.computeIfAbsent(key, ChappieSession::new);
+            evict();
+        }
+        session.touch();
+        return session;
+    }
+
+    /**
+     * Start a new conversation for this key. Requests still running on the previous session are not affected.
+     */
+    ChappieSession reset(String key) {
+        ChappieSession session = new ChappieSession(key);
+        sessions.put(key, session);
+        evict();
+        return session;
+    }
+
+    /**
+     * The session that last received an answer, so a conversation can be continued in the chat screen
+     */
+    ChappieSession mostRecent() {
+        return mostRecent;
+    }
+
+    void markMostRecent(ChappieSession session) {
+        session.touch();
+        this.mostRecent = session;
+    }
+
+    private void evict() {
+        long idleSince = System.currentTimeMillis() - maxIdleMillis;
+        sessions.values().removeIf(s -> s.getLastAccess() < idleSince);
+        while (sessions.size() > maxSessions) {
+            sessions.entrySet().stream()
+                    .min(Comparator.comparingLong(e -> e.getValue().getLastAccess()))
+                    .map(Map.Entry::getKey)
+                    .ifPresent(sessions::remove);
+        }
+    }
+}
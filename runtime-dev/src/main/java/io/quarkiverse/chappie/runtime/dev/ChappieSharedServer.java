@@ -0,0 +1,209 @@
+package io.quarkiverse.chappie.runtime.dev;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Lets the dev mode applications on this machine use one chappie server. The first application registers the server
+ * it started, the others find it in the registry and attach to it. Every application that uses a server leaves a
+ * reference file, named after its pid, and the last one to leave stops the server.
+ *
+ * A shared server writes its output to a file of its own in the registry directory, as it can outlive the application
+ * that started it. That file is removed when the server is stopped.
+ *
+ * All changes happen while holding a file lock, as the applications run in different JVMs.
+ */
+final class ChappieSharedServer {
+    private static final Logger LOG = Logger.getLogger(ChappieSharedServer.class);
+
+    private static final String KEY_PID = "pid";
+    private static final String KEY_BASE_URL = "baseUrl";
+    private static final String KEY_CONFIGURATION = "configuration";
+    private static final String KEY_OUTPUT = "output";
+    private static final String OUTPUT_PREFIX = "server-";
+    private static final String OUTPUT_SUFFIX = ".log";
+    // Output files of servers that were not stopped cleanly are removed once they did not change for this long
+    private static final Duration STALE_OUTPUT = Duration.ofDays(7);
+
+    private final Path dir;
+    private final Path registry;
+    private final Path lockFile;
+    private final String self = String.valueOf(ProcessHandle.current().pid());
+
+    record Server(ProcessHandle process, String baseUrl) {
+    }
+
+    ChappieSharedServer(Path dir) {
+        this.dir = dir;
+        this.registry = dir.resolve("server.properties");
+        this.lockFile = dir.resolve("server.lock");
+    }
+
+    /**
+     * Attach to the registered server if it is running with this configuration
+     */
+    synchronized Optional<Server> attach(String configuration) {
+        try (FileChannel channel = openLock(); FileLock lock = channel.lock()) {
+            Properties p = readRegistry();
+            Optional<ProcessHandle> process = ProcessHandle.of(Long.parseLong(p.getProperty(KEY_PID, "-1")));
+            if (process.isPresent() && process.get().isAlive() && configuration.equals(p.getProperty(KEY_CONFIGURATION))) {
+                Files.createDirectories(refs(process.get()));
+                Files.writeString(refs(process.get()).resolve(self), "");
+                return Optional.of(new Server(process.get(), p.getProperty(KEY_BASE_URL)));
+            }
+        } catch (IOException | RuntimeException ex) {
+            LOG.debug("Could not look for a shared Chappie Server", ex);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * The url of the registered server, if it is this process
+     */
+    synchronized Optional<String> baseUrl(ProcessHandle process) {
+        try (FileChannel channel = openLock(); FileLock lock = channel.lock()) {
+            Properties p = readRegistry();
+            if (String.valueOf(process.pid()).equals(p.getProperty(KEY_PID))) {
+                return Optional.ofNullable(p.getProperty(KEY_BASE_URL));
+            }
+        } catch (IOException | RuntimeException ex) {
+            LOG.debug("Could not look for a shared Chappie Server", ex);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * A new file for the output of a server we are about to start
+     */
+    synchronized Path newOutput() throws IOException {
+        try (FileChannel channel = openLock(); FileLock lock = channel.lock()) {
+            String registered = readRegistry().getProperty(KEY_OUTPUT);
+            long staleBefore = System.currentTimeMillis() - STALE_OUTPUT.toMillis();
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : files.toList()) {
+                    String name = file.getFileName().toString();
+                    if (name.startsWith(OUTPUT_PREFIX) && name.endsWith(OUTPUT_SUFFIX)
+                            && !file.toString().equals(registered)
+                            && Files.getLastModifiedTime(file).toMillis() < staleBefore) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+            return Files.createTempFile(dir, OUTPUT_PREFIX, OUTPUT_SUFFIX);
+        }
+    }
+
+    /**
+     * Make a server we started available to the other applications
+     *
+     * @param output the file the server writes its output to, or null
+     */
+    synchronized void register(ProcessHandle process, String baseUrl, String configuration, Path output) {
+        try (FileChannel channel = openLock(); FileLock lock = channel.lock()) {
+            Properties p = new Properties();
+            p.setProperty(KEY_PID, String.valueOf(process.pid()));
+            p.setProperty(KEY_BASE_URL, baseUrl);
+            p.setProperty(KEY_CONFIGURATION, configuration);
+            if (output != null) {
+                p.setProperty(KEY_OUTPUT, output.toString());
+            }
+            try (OutputStream out = Files.newOutputStream(registry)) {
+                p.store(out, "Chappie Server shared by the dev mode applications on this machine");
+            }
+            Files.createDirectories(refs(process));
+            Files.writeString(refs(process).resolve(self), "");
+        } catch (IOException ex) {
+            LOG.debug("Could not share the Chappie Server", ex);
+        }
+    }
+
+    /**
+     * Stop using this server
+     *
+     * @return true if no other application uses it, so it can be stopped
+     */
+    synchronized boolean release(ProcessHandle process) {
+        try (FileChannel channel = openLock(); FileLock lock = channel.lock()) {
+            Path refs = refs(process);
+            if (Files.notExists(refs)) {
+                return true;
+            }
+            Files.deleteIfExists(refs.resolve(self));
+            boolean inUse = false;
+            List<Path> users;
+            try (Stream<Path> files = Files.list(refs)) {
+                users = files.toList();
+            }
+            for (Path user : users) {
+                if (isAlive(user.getFileName().toString())) {
+                    inUse = true;
+                } else {
+                    // Left behind by an application that did not stop cleanly
+                    Files.deleteIfExists(user);
+                }
+            }
+            if (inUse) {
+                return false;
+            }
+            Files.deleteIfExists(refs);
+            Properties p = readRegistry();
+            if (String.valueOf(process.pid()).equals(p.getProperty(KEY_PID))) {
+                Files.deleteIfExists(registry);
+                String output = p.getProperty(KEY_OUTPUT);
+                if (output != null) {
+                    try {
+                        Files.deleteIfExists(Path.of(output));
+                    } catch (IOException ex) {
+                        // Still open on some systems, it is removed with the stale ones later
+                        LOG.debug("Could not remove the output of the shared Chappie Server", ex);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            // When in doubt keep the server running, the next application can still attach to it
+            LOG.debug("Could not release the shared Chappie Server", ex);
+            return false;
+        }
+        return true;
+    }
+
+    private FileChannel openLock() throws IOException {
+        Files.createDirectories(dir);
+        return FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    private Properties readRegistry() throws IOException {
+        Properties p = new Properties();
+        if (Files.exists(registry)) {
+            try (InputStream in = Files.newInputStream(registry)) {
+                p.load(in);
+            }
+        }
+        return p;
+    }
+
+    private Path refs(ProcessHandle process) {
+        return dir.resolve("refs-" + process.pid());
+    }
+
+    private static boolean isAlive(String pid) {
+        try {
+            return ProcessHandle.of(Long.parseLong(pid)).map(ProcessHandle::isAlive).orElse(false);
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+}
@@ -2,12 +2,26 @@ package io.quarkiverse.chappie.runtime.dev;
 
 import static com.github.victools.jsonschema.module.jackson.JacksonOption.RESPECT_JSONPROPERTY_REQUIRED;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Type;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JavaType;
@@ -28,13 +42,21 @@ public class JsonObjectCreator {
     private static final ObjectMapper objectMapper = new ObjectMapper()
             .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
-    private static final ObjectNode commonInputNode;
+    // The fields that are the same for every request, encoded to UTF-8 once
+    private static final SerializableString commonInputFields;
+
+    // How much of a response to include in error messages
+    private static final int PREVIEW_LENGTH = 512;
 
     static {
-        commonInputNode = objectMapper.createObjectNode();
+        ObjectNode commonInputNode = objectMapper.createObjectNode();
         commonInputNode.put("programmingLanguage", "Java"); // TODO: Find a clean way to decide if this is Kotlin or Java
         commonInputNode.put("programmingLanguageVersion", System.getProperty("java.version"));
         commonInputNode.put("quarkusVersion", Version.getVersion());
+
+        String json = commonInputNode.toString();
+        // Strip the braces and end with a comma, so the generator can continue with the next field as if it's the first
+        commonInputFields = new SerializedString(json.substring(1, json.length() - 1) + ",");
     }
 
     public static String getWorkspaceInput(String systemmessageTemplate, String usermessageTemplate,
@@ -42,29 +64,63 @@ public class JsonObjectCreator {
         return getInput(systemmessageTemplate, usermessageTemplate, variables, Map.of("paths", paths), responseType);
     }
 
+    /**
+     * Same as getWorkspaceInput, but written straight to a body for the HTTP client, without building a String first
+     */
+    public static HttpRequest.BodyPublisher getWorkspaceInputBody(String systemmessageTemplate,
+            String usermessageTemplate, Map<String, String> variables, List<Path> paths, Class<?> responseType) {
+        ByteChunksOutputStream out = new ByteChunksOutputStream();
+        try {
+            writeInput(out, systemmessageTemplate, usermessageTemplate, variables, Map.of("paths", paths), responseType);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toBodyPublisher();
+    }
+
     public static String getInput(String systemmessageTemplate, String usermessageTemplate, Map<String, String> variables,
             Map<String, Object> params, Class<?> responseType) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
         try {
+            writeInput(out, systemmessageTemplate, usermessageTemplate, variables, params, responseType);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
 
-            ObjectNode genericInputNode = commonInputNode.deepCopy();
+    private static void writeInput(OutputStream out, String systemmessageTemplate, String usermessageTemplate,
+            Map<String, String> variables, Map<String, Object> params, Class<?> responseType) throws IOException {
+        try (JsonGenerator generator = objectMapper.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
 
-            genericInputNode.put("systemmessageTemplate", systemmessageTemplate);
-            genericInputNode.put("usermessageTemplate", usermessageTemplate);
-            ObjectNode variablesAsNode = objectMapper.valueToTree(variables);
-            genericInputNode.set("variables", variablesAsNode);
+            generator.writeFieldName("genericInput");
+            generator.writeStartObject();
+            generator.writeRaw(commonInputFields);
+            generator.writeStringField("systemmessageTemplate", systemmessageTemplate);
+            generator.writeStringField("usermessageTemplate", usermessageTemplate);
+            generator.writeFieldName("variables");
+            if (variables == null) {
+                generator.writeNull();
+            } else {
+                generator.writeStartObject();
+                for (Map.Entry<String, String> variable : variables.entrySet()) {
+                    generator.writeStringField(variable.getKey(), variable.getValue());
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
 
-            ObjectNode inputNode = objectMapper.createObjectNode();
-            inputNode.set("genericInput", genericInputNode);
-            ObjectNode paramsAsNode = objectMapper.valueToTree(params);
-            inputNode.setAll(paramsAsNode);
+            for (Map.Entry<String, Object> param : params.entrySet()) {
+                generator.writeFieldName(param.getKey());
+                generator.writeObject(param.getValue());
+            }
 
             if (responseType != null) {
-                inputNode.put("responseSchemaPrompt", buildResponsePrompt(responseType));
+                generator.writeStringField("responseSchemaPrompt", buildResponsePrompt(responseType));
             }
 
-            return objectMapper.writeValueAsString(inputNode);
-        } catch (JsonProcessingException ex) {
-            throw new RuntimeException(ex);
+            generator.writeEndObject();
         }
     }
 
@@ -72,49 +128,116 @@ public class JsonObjectCreator {
         try {
             return objectMapper.readValue(json, responseType);
         } catch (Exception e) {
-            throw new RuntimeException("Failed to parse JSON response \n" + json, e);
+            throw new RuntimeException("Failed to parse JSON response \n" + preview(json), e);
         }
     }
 
     public static <T> ChappieEnvelope<T> getEnvelopeOutput(String json, Class<T> answerClass) {
         try {
-            TypeFactory tf = objectMapper.getTypeFactory();
-            JavaType inner = tf.constructType(answerClass);
-            JavaType envelope = tf.constructParametricType(ChappieEnvelope.class, inner);
-            return objectMapper.readValue(json, envelope);
+            return objectMapper.readValue(json, envelopeType(answerClass));
         } catch (Exception e) {
-            throw new RuntimeException("Failed to parse JSON response \n" + json, e);
+            throw new RuntimeException("Failed to parse JSON response \n" + preview(json), e);
         }
     }
 
     @SuppressWarnings("unchecked")
     public static <T> ChappieEnvelope<T> getEnvelopeOutput(String json, Type answerType) {
         try {
-            TypeFactory tf = objectMapper.getTypeFactory();
-            JavaType inner = tf.constructType(answerType);
-            JavaType envelope = tf.constructParametricType(ChappieEnvelope.class, inner);
-            return (ChappieEnvelope<T>) objectMapper.readValue(json, envelope);
+            return (ChappieEnvelope<T>) objectMapper.readValue(json, envelopeType(answerType));
         } catch (Exception e) {
-            throw new RuntimeException("Failed to parse JSON response \n" + json, e);
+            throw new RuntimeException("Failed to parse JSON response \n" + preview(json), e);
         }
     }
 
+    /**
+     * Parse the envelope straight from the response stream. The stream is closed when done.
+     */
+    public static <T> ChappieEnvelope<T> getEnvelopeOutput(InputStream json, Class<T> answerClass) {
+        return read(json, envelopeType(answerClass));
+    }
+
     public static List<Map> getList(String json) {
         try {
             return objectMapper.readValue(json, new TypeReference<List<Map>>() {
             });
         } catch (Exception e) {
-            throw new RuntimeException("Failed to parse JSON response \n" + json, e);
+            throw new RuntimeException("Failed to parse JSON response \n" + preview(json), e);
         }
     }
 
+    public static List<Map> getList(InputStream json) {
+        return read(json, objectMapper.getTypeFactory().constructType(new TypeReference<List<Map>>() {
+        }));
+    }
+
     public static Map getMap(String json) {
         try {
             return objectMapper.readValue(json, new TypeReference<Map>() {
             });
         } catch (Exception e) {
-            throw new RuntimeException("Failed to parse JSON response \n" + json, e);
+            throw new RuntimeException("Failed to parse JSON response \n" + preview(json), e);
+        }
+    }
+
+    public static Map getMap(InputStream json) {
+        return read(json, objectMapper.getTypeFactory().constructType(Map.class));
+    }
+
+    /**
+     * Read the start of a stream (like an error body) for use in a message. The stream is closed when done.
+     */
+    public static String readPreview(InputStream in) {
+        try (PreviewInputStream preview = new PreviewInputStream(in, PREVIEW_LENGTH)) {
+            preview.transferTo(OutputStream.nullOutputStream());
+            return preview.preview();
+        } catch (IOException ex) {
+            return "";
+        }
+    }
+
+    static String preview(String json) {
+        if (json == null || json.length() <= PREVIEW_LENGTH) {
+            return json;
+        }
+        return json.substring(0, PREVIEW_LENGTH) + "... (" + (json.length() - PREVIEW_LENGTH) + " more characters)";
+    }
+
+    private static <T> T read(InputStream in, JavaType type) {
+        PreviewInputStream json = new PreviewInputStream(in, PREVIEW_LENGTH);
+        try (json) {
+            return objectMapper.readValue(json, type);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse JSON response \n" + json.preview(), e);
+        }
+    }
+
+    private static JavaType envelopeType(Type answerType) {
+        TypeFactory tf = objectMapper.getTypeFactory();
+        JavaType inner = tf.constructType(answerType);
+        return tf.constructParametricType(ChappieEnvelope.class, inner);
+    }
+
+    /**
+     * Get the markdown field of an answer, or the answer as JSON if there is no markdown
+     */
+    public static String getMarkdown(Object answer) {
+        String markdown = getTextField(answer, "markdown");
+        if (markdown != null) {
+            return markdown;
+        }
+        JsonNode node = objectMapper.valueToTree(answer);
+        return node.isTextual() ? node.asText() : node.toString();
+    }
+
+    public static String getTextField(Object answer, String field) {
+        if (answer == null) {
+            return null;
         }
+        JsonNode value = objectMapper.valueToTree(answer).get(field);
+        if (value != null && value.isTextual()) {
+            return value.asText();
+        }
+        return null;
     }
 
     public static String toJsonString(Map<String, Object> data) {
@@ -125,11 +248,38 @@ public class JsonObjectCreator {
         }
     }
 
+    /**
+     * Render the response prompts for these types now, so the schema generation does not happen on the first request.
+     *
+     * @return the rendered prompt per type name, to pass on to another class loader with registerResponsePrompts
+     */
+    public static Map<String, String> precomputeResponsePrompts(Collection<Class<?>> responseTypes) {
+        Map<String, String> prompts = new HashMap<>();
+        for (Class<?> responseType : responseTypes) {
+            prompts.put(responseType.getName(), RESPONSE_PROMPTS.get(responseType));
+        }
+        return prompts;
+    }
+
+    /**
+     * Use prompts that were rendered at build time, keyed by type name
+     */
+    public static void registerResponsePrompts(Map<String, String> prompts) {
+        PRECOMPUTED_RESPONSE_PROMPTS.putAll(prompts);
+    }
+
+    private static String buildResponsePrompt(Class<?> answerType) {
+        return RESPONSE_PROMPTS.get(answerType);
+    }
+
     /**
      * Small helper to produce a ready-to-send prompt block
-     * TODO: We can cache this
      */
-    private static String buildResponsePrompt(Type answerType) {
+    private static String createResponsePrompt(Class<?> answerType) {
+        String precomputed = PRECOMPUTED_RESPONSE_PROMPTS.get(answerType.getName());
+        if (precomputed != null) {
+            return precomputed;
+        }
         JsonNode jsonSchema = SCHEMA_GENERATOR.generateSchema(ChappieEnvelope.class, answerType);
 
         return """
@@ -148,6 +298,15 @@ public class JsonObjectCreator {
                 .formatted(jsonSchema.toString());
     }
 
+    // Schema generation is reflection heavy, so we only do it once per type
+    private static final Map<String, String> PRECOMPUTED_RESPONSE_PROMPTS = new ConcurrentHashMap<>();
+    private static final ClassValue<String> RESPONSE_PROMPTS = new ClassValue<>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            return createResponsePrompt(type);
+        }
+    };
+
     private static final SchemaGenerator SCHEMA_GENERATOR = new SchemaGenerator(
             new SchemaGeneratorConfigBuilder(SchemaVersion.DRAFT_2020_12)
                     .with(new JacksonModule(RESPECT_JSONPROPERTY_REQUIRED))
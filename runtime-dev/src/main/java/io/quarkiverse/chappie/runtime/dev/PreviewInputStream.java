@@ -0,0 +1,55 @@
+package io.quarkiverse.chappie.runtime.dev;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Remembers the first bytes read from a stream, so errors can show what was received without buffering everything.
+ */
+final class PreviewInputStream extends FilterInputStream {
+    private final byte[] head;
+    private int headLength = 0;
+    private long total = 0;
+
+    PreviewInputStream(InputStream in, int previewLength) {
+        super(in);
+        this.head = new byte[previewLength];
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            remember(new byte[] { (byte) b }, 0, 1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        int n = super.read(bytes, offset, length);
+        if (n > 0) {
+            remember(bytes, offset, n);
+        }
+        return n;
+    }
+
+    String preview() {
+        String text = new String(head, 0, headLength, StandardCharsets.UTF_8);
+        if (total > headLength) {
+            return text + "... (" + (total - headLength) + " more bytes)";
+        }
+        return text;
+    }
+
+    private void remember(byte[] bytes, int offset, int length) {
+        total += length;
+        int n = Math.min(length, head.length - headLength);
+        if (n > 0) {
+            System.arraycopy(bytes, offset, head, headLength, n);
+            headLength += n;
+        }
+    }
+}
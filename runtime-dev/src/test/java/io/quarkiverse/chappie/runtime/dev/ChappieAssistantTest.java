@@ -0,0 +1,215 @@
+package io.quarkiverse.chappie.runtime.dev;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import io.quarkus.dev.console.DevConsoleManager;
+
+class ChappieAssistantTest {
+
+    private final ChappieAssistant assistant = new ChappieAssistant();
+
+    @Test
+    void sameRequestIsSentOnce() {
+        AtomicInteger sent = new AtomicInteger();
+        CompletableFuture<String> request = new CompletableFuture<>();
+        CompletionStage<String> first = assistant.coalesce("key", null, () -> {
+            sent.incrementAndGet();
+            return request;
+        });
+        CompletionStage<String> second = assistant.coalesce("key", null, () -> {
+            sent.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+
+        assertEquals(1, sent.get());
+        assertNotSame(first, second);
+        request.complete("answer");
+        assertEquals("answer", first.toCompletableFuture().join());
+        assertEquals("answer", second.toCompletableFuture().join());
+    }
+
+    @Test
+    void requestIsSentAgainOnceAnswered() {
+        AtomicInteger sent = new AtomicInteger();
+        assistant.coalesce("key", null, () -> {
+            sent.incrementAndGet();
+            return CompletableFuture.completedFuture("answer");
+        });
+        assistant.coalesce("key", null, () -> {
+            sent.incrementAndGet();
+            return CompletableFuture.completedFuture("answer");
+        });
+
+        assertEquals(2, sent.get());
+    }
+
+    @Test
+    void everyCallerGetsTheConversation() {
+        ChappieSession leader = new ChappieSession("leader");
+        ChappieSession joiner = new ChappieSession("joiner");
+        CompletableFuture<String> request = new CompletableFuture<>();
+        CompletionStage<String> first = assistant.coalesce("key", leader, () -> request);
+        CompletionStage<String> second = assistant.coalesce("key", joiner, CompletableFuture::new);
+
+        // Done by the request once it has the answer
+        leader.setMemoryId("memory");
+        leader.setTitle("A title");
+        request.complete("answer");
+
+        assertEquals("answer", first.toCompletableFuture().join());
+        assertEquals("answer", second.toCompletableFuture().join());
+        assertEquals("memory", joiner.getMemoryId());
+        assertEquals("A title", joiner.getTitle());
+    }
+
+    @Test
+    void requestIsCancelledWhenAllCallersCancelled() {
+        CompletableFuture<String> request = new CompletableFuture<>();
+        CompletionStage<String> first = assistant.coalesce("key", null, () -> request);
+        CompletionStage<String> second = assistant.coalesce("key", null, CompletableFuture::new);
+
+        first.toCompletableFuture().cancel(true);
+        assertFalse(request.isDone());
+        assertFalse(second.toCompletableFuture().isDone());
+
+        second.toCompletableFuture().cancel(true);
+        assertTrue(request.isCancelled());
+    }
+
+    @Test
+    void cancelledRequestIsNotJoined() {
+        CompletableFuture<String> cancelled = new CompletableFuture<>();
+        assistant.coalesce("key", null, () -> cancelled).toCompletableFuture().cancel(true);
+        assertTrue(cancelled.isCancelled());
+
+        CompletableFuture<String> request = new CompletableFuture<>();
+        CompletionStage<String> next = assistant.coalesce("key", null, () -> request);
+        request.complete("answer");
+
+        assertEquals("answer", next.toCompletableFuture().join());
+    }
+
+    @Test
+    void retriesUntilTheServerAnswers() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        CompletionStage<String> answer = assistant.withRetries(() -> attempts.incrementAndGet() < 3
+                ? CompletableFuture.failedFuture(new ConnectException("refused"))
+                : CompletableFuture.completedFuture("answer"));
+
+        assertEquals("answer", answer.toCompletableFuture().get(10, TimeUnit.SECONDS));
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void givesUpAfterTheRetries() {
+        AtomicInteger attempts = new AtomicInteger();
+        ConnectException refused = new ConnectException("refused");
+        CompletionStage<String> answer = assistant.withRetries(() -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(refused);
+        });
+
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> answer.toCompletableFuture().get(10, TimeUnit.SECONDS));
+        assertSame(refused, failure.getCause());
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void clientErrorsAreNotRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+        CompletionStage<String> answer = assistant.withRetries(() -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(new ChappieHttpException(400, "bad request"));
+        });
+
+        assertThrows(ExecutionException.class, () -> answer.toCompletableFuture().get(10, TimeUnit.SECONDS));
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void retryableFailures() {
+        assertTrue(ChappieAssistant.isRetryable(new ConnectException("refused")));
+        assertTrue(ChappieAssistant.isRetryable(new CompletionException(new IOException("reset"))));
+        assertTrue(ChappieAssistant.isRetryable(new ChappieHttpException(503, "unavailable")));
+        assertTrue(ChappieAssistant.isRetryable(new ChappieHttpException(429, "too many requests")));
+        assertFalse(ChappieAssistant.isRetryable(new ChappieHttpException(500, "failed")));
+        assertFalse(ChappieAssistant.isRetryable(new IllegalStateException()));
+    }
+
+    @Test
+    void onlyConnectFailuresOpenTheBreaker() {
+        assertTrue(ChappieAssistant.isConnectFailure(new ConnectException("refused")));
+        assertTrue(ChappieAssistant.isConnectFailure(new CompletionException(new HttpConnectTimeoutException("slow"))));
+        // A long assist request is not a sign of a server in trouble
+        assertFalse(ChappieAssistant.isConnectFailure(new HttpTimeoutException("request timed out")));
+        assertFalse(ChappieAssistant.isConnectFailure(new IOException("reset")));
+    }
+
+    @Test
+    void cancellingANewConversationCancelsOnTheServer() throws Exception {
+        CompletableFuture<String> sent = new CompletableFuture<>();
+        CompletableFuture<String> cancelled = new CompletableFuture<>();
+        CountDownLatch stop = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/assist", exchange -> {
+            sent.complete(exchange.getRequestHeaders().getFirst("X-Chappie-RequestId"));
+            try {
+                // Still generating the answer
+                stop.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        server.createContext("/api/assist/cancel", exchange -> {
+            cancelled.complete(exchange.getRequestHeaders().getFirst("X-Chappie-RequestId"));
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        // Normally registered by the deployment side
+        DevConsoleManager.register("chappie.getArtifact", (Map<String, String> params) -> null);
+        try {
+            assistant.setBaseUrl("http://localhost:" + server.getAddress().getPort());
+            CompletionStage<Object> answer = assistant.assist(Optional.empty(), "user", Map.of(), List.of(),
+                    Map.class, null, true, true);
+            String requestId = sent.get(10, TimeUnit.SECONDS);
+
+            answer.toCompletableFuture().cancel(true);
+
+            assertEquals(requestId, cancelled.get(10, TimeUnit.SECONDS));
+        } finally {
+            stop.countDown();
+            server.stop(0);
+            assistant.close();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package io.quarkiverse.chappie.runtime.dev;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+class ChappieCircuitBreakerTest {
+
+    @Test
+    void opensAfterFailuresInARow() {
+        ChappieCircuitBreaker breaker = new ChappieCircuitBreaker(3, () -> CompletableFuture.completedFuture(false));
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertTrue(breaker.allowRequest());
+
+        breaker.onFailure();
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    void closesWhenTheServerAnswersAgain() throws InterruptedException {
+        AtomicBoolean up = new AtomicBoolean();
+        ChappieCircuitBreaker breaker = new ChappieCircuitBreaker(1,
+                () -> CompletableFuture.completedFuture(up.get()));
+        breaker.onFailure();
+        assertFalse(breaker.allowRequest());
+
+        up.set(true);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!breaker.allowRequest() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    void resetCloses() {
+        ChappieCircuitBreaker breaker = new ChappieCircuitBreaker(1, () -> CompletableFuture.completedFuture(false));
+        breaker.onFailure();
+        assertFalse(breaker.allowRequest());
+
+        breaker.reset();
+        assertTrue(breaker.allowRequest());
+    }
+}
@@ -0,0 +1,98 @@
+package io.quarkiverse.chappie.runtime.dev;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ChappieConfigFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void snapshotIsKeptUntilInvalidated() throws IOException {
+        Path file = dir.resolve("chappie-assistant.properties");
+        write(file, "name", "openai", "openai.model", "gpt");
+        ChappieConfigFile config = new ChappieConfigFile(file);
+
+        ChappieConfigFile.Snapshot first = config.snapshot();
+        assertEquals("gpt", first.active().getProperty("model"));
+        assertEquals("openai", first.active().getProperty("name"));
+
+        write(file, "name", "ollama", "ollama.model", "llama");
+        assertSame(first, config.snapshot());
+
+        config.invalidate();
+        assertEquals("llama", config.snapshot().active().getProperty("model"));
+    }
+
+    @Test
+    void storeReplacesTheSnapshot() {
+        Path file = dir.resolve("chappie-assistant.properties");
+        ChappieConfigFile config = new ChappieConfigFile(file);
+        assertTrue(config.snapshot().full().isEmpty());
+
+        Properties properties = new Properties();
+        properties.setProperty("name", "openai");
+        properties.setProperty("openai.api-key", "secret");
+        assertTrue(config.store(properties));
+
+        assertEquals("secret", config.snapshot().active().getProperty("api-key"));
+        assertTrue(Files.exists(file));
+        config.invalidate();
+        assertEquals("secret", config.snapshot().active().getProperty("api-key"));
+    }
+
+    @Test
+    void scopeOnlyKeepsTheNamedProvider() {
+        Properties full = new Properties();
+        full.setProperty("name", "openai");
+        full.setProperty("openai.model", "gpt");
+        full.setProperty("ollama.model", "llama");
+
+        assertEquals("gpt", ChappieConfigFile.scope(full, null).getProperty("model"));
+        assertEquals("llama", ChappieConfigFile.scope(full, "ollama").getProperty("model"));
+        assertNull(ChappieConfigFile.scope(new Properties(), null).getProperty("name"));
+    }
+
+    @Test
+    void changesOnDiskAreSeen() throws Exception {
+        Path file = dir.resolve("chappie-assistant.properties");
+        write(file, "name", "openai");
+        ChappieConfigFile config = new ChappieConfigFile(file);
+        config.watch();
+        try {
+            assertEquals("openai", config.snapshot().active().getProperty("name"));
+            write(file, "name", "ollama");
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!"ollama".equals(config.snapshot().active().getProperty("name"))
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals("ollama", config.snapshot().active().getProperty("name"));
+        } finally {
+            config.close();
+        }
+    }
+
+    private static void write(Path file, String... keyValues) throws IOException {
+        Properties properties = new Properties();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            properties.setProperty(keyValues[i], keyValues[i + 1]);
+        }
+        try (OutputStream out = Files.newOutputStream(file)) {
+            properties.store(out, null);
+        }
+    }
+}
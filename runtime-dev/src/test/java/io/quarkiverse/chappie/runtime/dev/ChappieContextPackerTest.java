@@ -0,0 +1,171 @@
+package io.quarkiverse.chappie.runtime.dev;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ChappieContextPackerTest {
+
+    private static final String SOURCE = """
+            package org.acme;
+
+            @Path("/{id}")
+            public class Greeting {
+                private static final String OPEN = "{";
+                private final char close = '}';
+                /* A comment with { a brace */
+                private final Runnable task = () -> { System.out.println("}"); };
+
+                public String first(String name) {
+                    // Nested braces, and one } in a comment
+                    if (name == null) {
+                        return new Object() {
+                            @Override
+                            public String toString() {
+                                return "{unknown}";
+                            }
+                        }.toString();
+                    }
+                    return name;
+                }
+
+                public String broken(String name) {
+                    String text = \"""
+                            { not a block
+                            \""";
+                    return text + name.trim();
+                }
+
+                static class Nested {
+                    void inner() {
+                    }
+                }
+
+                public abstract void declared();
+
+                public int last() {
+                    return '{';
+                }
+            }
+            """;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void onlyTheFocusKeepsItsBody() throws IOException {
+        ChappieContextPacker.Packed packed = pack("broken", 0);
+        String sent = packed.variables().get("content");
+
+        assertTrue(packed.paths().isEmpty());
+        assertEquals(dir.resolve("Greeting.java").toString(), packed.variables().get(ChappieContextPacker.VAR_PATH));
+        assertTrue(sent.contains("return text + name.trim();"));
+        assertFalse(sent.contains("return name;"));
+        assertFalse(sent.contains("return '{';"));
+        // Fields, nested types and methods without a body are kept as they are
+        assertTrue(sent.contains("private final Runnable task = () -> { System.out.println(\"}\"); };"));
+        assertTrue(sent.contains("void inner() {"));
+        assertTrue(sent.contains("public abstract void declared();"));
+        assertEquals(2, count(sent, "/* chappie:omitted:"));
+    }
+
+    @Test
+    void smallContextIsNotTrimmed() throws IOException {
+        ChappieContextPacker.Packed packed = pack("broken", 100_000);
+
+        assertEquals(SOURCE, packed.variables().get("content"));
+        assertTrue(packed.paths().isEmpty());
+        assertEquals(SOURCE, ChappieContextPacker.restore(SOURCE, SOURCE, SOURCE));
+    }
+
+    @Test
+    void bodiesAreRestored() throws IOException {
+        String sent = pack("broken", 0).variables().get("content");
+        String answer = sent.replace("return text + name.trim();", "return text + name;");
+
+        assertEquals(SOURCE.replace("return text + name.trim();", "return text + name;"),
+                ChappieContextPacker.restore(SOURCE, sent, answer));
+    }
+
+    @Test
+    void markersMayMove() throws IOException {
+        String sent = pack("broken", 0).variables().get("content");
+        String answer = sent.replace("public String first(String name) {", "public final String first(String name) {");
+
+        String restored = ChappieContextPacker.restore(SOURCE, sent, answer);
+        assertTrue(restored.contains("public final String first(String name) {"));
+        assertTrue(restored.contains("return \"{unknown}\";"));
+    }
+
+    @Test
+    void droppedMarkerIsRejected() throws IOException {
+        String sent = pack("broken", 0).variables().get("content");
+        String answer = sent.replaceFirst("\\{ /\\* chappie:omitted:\\d+ \\*/ }", "{ }");
+
+        assertNull(ChappieContextPacker.restore(SOURCE, sent, answer));
+    }
+
+    @Test
+    void duplicatedMarkerIsRejected() throws IOException {
+        String sent = pack("broken", 0).variables().get("content");
+        String marker = sent.substring(sent.indexOf("{ /* chappie:omitted:"), sent.indexOf(" */ }") + 5);
+        String answer = sent.replace("public abstract void declared();", "public void declared() " + marker);
+
+        assertNull(ChappieContextPacker.restore(SOURCE, sent, answer));
+    }
+
+    @Test
+    void unknownMarkerIsRejected() throws IOException {
+        String sent = pack("broken", 0).variables().get("content");
+
+        assertNull(ChappieContextPacker.restore(SOURCE, sent,
+                sent.replace("public abstract void declared();", "public void declared() { /* chappie:omitted:99 */ }")));
+        assertNull(ChappieContextPacker.restore(SOURCE, SOURCE, SOURCE + "{ /* chappie:omitted:0 */ }"));
+    }
+
+    @Test
+    void changedMarkerIsRejected() throws IOException {
+        String sent = pack("broken", 0).variables().get("content");
+        String answer = sent.replaceFirst("\\{ /\\* chappie:omitted:(\\d+) \\*/ }", "{ /* chappie:omitted:$1 ... */ }");
+
+        assertNull(ChappieContextPacker.restore(SOURCE, sent, answer));
+        assertNull(ChappieContextPacker.restore(SOURCE, sent, null));
+    }
+
+    @Test
+    void focusOfAFrame() {
+        assertEquals("process", ChappieContextPacker.focus(frame("org.acme.Greeting", "process")));
+        assertEquals("process", ChappieContextPacker.focus(frame("org.acme.Greeting", "lambda$process$0")));
+        assertEquals("Inner", ChappieContextPacker.focus(frame("org.acme.Greeting$Inner", "<init>")));
+        assertEquals("", ChappieContextPacker.focus(frame("org.acme.Greeting", "<clinit>")));
+        assertEquals("", ChappieContextPacker.focus(null));
+    }
+
+    private ChappieContextPacker.Packed pack(String focus, int tokenBudget) throws IOException {
+        Path file = Files.writeString(dir.resolve("Greeting.java"), SOURCE);
+        return ChappieContextPacker.pack("system", "user", Map.of("content", SOURCE), List.of(file), focus,
+                tokenBudget);
+    }
+
+    private static StackTraceElement frame(String className, String method) {
+        return new StackTraceElement(className, method, "Greeting.java", 1);
+    }
+
+    private static int count(String text, String token) {
+        int count = 0;
+        for (int i = text.indexOf(token); i >= 0; i = text.indexOf(token, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,132 @@
+package io.quarkiverse.chappie.runtime.dev;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import org.junit.jupiter.api.Test;
+
+class ChappieEventStreamTest {
+
+    @Test
+    void unnamedAndNamedEvents() {
+        Recorder recorder = new Recorder();
+        feed(recorder.stream, "data: Hello", "", "event: niceName", "data: A title", "", "data:World", "");
+        recorder.stream.onComplete();
+
+        assertEquals(List.of("null=Hello", "niceName=A title", "null=World"), recorder.events);
+        assertTrue(recorder.ended);
+        assertNull(recorder.failure);
+    }
+
+    @Test
+    void multiLineDataIsJoined() {
+        Recorder recorder = new Recorder();
+        feed(recorder.stream, "data: first", "data:  indented", "data", "");
+
+        assertEquals(List.of("null=first\n indented\n"), recorder.events);
+    }
+
+    @Test
+    void commentsAndOtherFieldsAreIgnored() {
+        Recorder recorder = new Recorder();
+        feed(recorder.stream, ": keep alive", "id: 7", "retry: 1000", "data: x", "", "", ": again", "");
+
+        assertEquals(List.of("null=x"), recorder.events);
+    }
+
+    @Test
+    void lastEventWithoutEmptyLineIsDispatchedOnComplete() {
+        Recorder recorder = new Recorder();
+        feed(recorder.stream, "data: tail");
+        recorder.stream.onComplete();
+
+        assertEquals(List.of("null=tail"), recorder.events);
+        assertTrue(recorder.ended);
+    }
+
+    @Test
+    void handlerCanStopReading() {
+        Recorder recorder = new Recorder();
+        recorder.stopOn = "error";
+        Subscription subscription = feed(recorder.stream, "event: error", "data: boom", "", "data: ignored", "");
+        recorder.stream.onComplete();
+
+        assertEquals(List.of("error=boom"), recorder.events);
+        assertTrue(subscription.cancelled);
+        assertFalse(recorder.ended);
+    }
+
+    @Test
+    void cancelBeforeSubscribe() {
+        Recorder recorder = new Recorder();
+        recorder.stream.cancel();
+        Subscription subscription = new Subscription();
+        recorder.stream.onSubscribe(subscription);
+
+        assertTrue(subscription.cancelled);
+        assertEquals(0, subscription.requested);
+    }
+
+    @Test
+    void failureEndsTheStream() {
+        Recorder recorder = new Recorder();
+        feed(recorder.stream, "data: partial");
+        IllegalStateException failure = new IllegalStateException("gone");
+        recorder.stream.onError(failure);
+        recorder.stream.onComplete();
+
+        assertTrue(recorder.events.isEmpty());
+        assertSame(failure, recorder.failure);
+    }
+
+    private static Subscription feed(ChappieEventStream stream, String... lines) {
+        Subscription subscription = new Subscription();
+        stream.onSubscribe(subscription);
+        for (String line : lines) {
+            stream.onNext(line);
+        }
+        return subscription;
+    }
+
+    private static class Recorder implements ChappieEventStream.Handler {
+        final ChappieEventStream stream = new ChappieEventStream(this);
+        final List<String> events = new ArrayList<>();
+        String stopOn;
+        boolean ended;
+        Throwable failure;
+
+        @Override
+        public boolean onEvent(String event, String data) {
+            events.add(event + "=" + data);
+            return stopOn == null || !stopOn.equals(event);
+        }
+
+        @Override
+        public void onEnd(Throwable failure) {
+            this.ended = true;
+            this.failure = failure;
+        }
+    }
+
+    private static class Subscription implements Flow.Subscription {
+        long requested;
+        boolean cancelled;
+
+        @Override
+        public void request(long n) {
+            requested += n;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
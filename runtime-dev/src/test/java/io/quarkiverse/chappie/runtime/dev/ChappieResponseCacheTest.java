@@ -0,0 +1,135 @@
+package io.quarkiverse.chappie.runtime.dev;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ChappieResponseCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void answersAreKeptOnDisk() throws Exception {
+        ChappieResponseCache cache = cache(Duration.ofHours(1), 10);
+        cache.put("a", bytes("answer"));
+        cache.flush().get(10, TimeUnit.SECONDS);
+
+        ChappieResponseCache.Entry entry = cache(Duration.ofHours(1), 10).get("a");
+        assertNotNull(entry);
+        assertArrayEquals(bytes("answer"), entry.body());
+    }
+
+    @Test
+    void expiredAnswersAreRemoved() throws Exception {
+        ChappieResponseCache cache = cache(Duration.ofMillis(-1), 10);
+        cache.put("a", bytes("answer"));
+        cache.flush().get(10, TimeUnit.SECONDS);
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cacheFiles());
+    }
+
+    @Test
+    void leastRecentlyUsedAnswerIsEvictedFirst() throws Exception {
+        ChappieResponseCache cache = cache(Duration.ofHours(1), 2);
+        cache.put("a", bytes("1"));
+        cache.put("b", bytes("2"));
+        cache.get("a");
+        cache.put("c", bytes("3"));
+        cache.flush().get(10, TimeUnit.SECONDS);
+        // Only the memory is bounded this tightly, so remove the files to see what is left in memory
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    @Test
+    void diskIsBounded() throws Exception {
+        ChappieResponseCache cache = cache(Duration.ofHours(1), 1);
+        for (int i = 0; i < 10; i++) {
+            cache.put("key" + i, bytes(String.valueOf(i)));
+        }
+        cache.flush().get(10, TimeUnit.SECONDS);
+
+        assertEquals(4, cacheFiles());
+    }
+
+    @Test
+    void disablingClearsTheMemory() throws Exception {
+        ChappieResponseCache cache = cache(Duration.ofHours(1), 10);
+        cache.put("a", bytes("answer"));
+        cache.flush().get(10, TimeUnit.SECONDS);
+        Files.delete(dir.resolve("a.cache"));
+
+        cache.configure(false, Duration.ofHours(1), 10);
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void keyDependsOnTheFileContent() throws IOException {
+        Path file = Files.writeString(dir.resolve("Hello.java"), "class Hello {}");
+        String before = key(file, true);
+        assertEquals(before, key(file, true));
+
+        Files.writeString(file, "class Hello { }");
+        assertNotEquals(before, key(file, true));
+    }
+
+    @Test
+    void keyDependsOnTheRequest() {
+        String key = ChappieResponseCache.key("openai", "system", "user", Map.of("a", "1"), List.of(), Map.class, true,
+                true);
+        assertEquals(key, ChappieResponseCache.key("openai", "system", "user", Map.of("a", "1"), List.of(), Map.class,
+                true, true));
+        assertNotEquals(key, ChappieResponseCache.key("ollama", "system", "user", Map.of("a", "1"), List.of(),
+                Map.class, true, true));
+        assertNotEquals(key, ChappieResponseCache.key("openai", "system", "user", Map.of("a", "2"), List.of(),
+                Map.class, true, true));
+        assertNotEquals(key, ChappieResponseCache.key("openai", "system", "user", Map.of("a", "1"), List.of(),
+                String.class, true, true));
+        assertNotEquals(key, ChappieResponseCache.key("openai", "system", "user", Map.of("a", "1"), List.of(),
+                Map.class, false, true));
+    }
+
+    private ChappieResponseCache cache(Duration ttl, int maxEntries) {
+        ChappieResponseCache cache = new ChappieResponseCache(dir);
+        cache.configure(true, ttl, maxEntries);
+        return cache;
+    }
+
+    private static String key(Path file, boolean contents) {
+        return ChappieResponseCache.key("openai", "system", "user", Map.of(), List.of(file), Map.class, true, contents);
+    }
+
+    private long cacheFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.toString().endsWith(".cache")).count();
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,66 @@
+package io.quarkiverse.chappie.runtime.dev;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ChappieServerLogTest {
+
+    @TempDir
+    Path dir;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void portIsFoundWhenTheServerListens() throws Exception {
+        Path output = Files.createFile(dir.resolve("server.log"));
+        CompletableFuture<Integer> port = ChappieServerLog.listeningPort(output, ProcessHandle.current(), scheduler);
+
+        append(output, "__  ____  __  _____   ___  __ ____  ______\n");
+        // A line that is written in two parts
+        append(output, "INFO  [io.quarkus] chappie-server 1.2.1 started in 1.2s. ");
+        Thread.sleep(300);
+        assertFalse(port.isDone());
+        append(output, "Listening on: http://localhost:41235\n");
+
+        assertEquals(41235, port.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failsWhenTheServerStops() throws Exception {
+        Path output = Files.createFile(dir.resolve("server.log"));
+        Process process = new ProcessBuilder("java", "-version").redirectErrorStream(true)
+                .redirectOutput(output.toFile()).start();
+        process.waitFor(30, TimeUnit.SECONDS);
+
+        CompletableFuture<Integer> port = ChappieServerLog.listeningPort(output, process.toHandle(), scheduler);
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> port.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        Files.writeString(file, text, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+}
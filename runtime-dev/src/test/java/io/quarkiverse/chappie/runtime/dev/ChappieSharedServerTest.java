@@ -0,0 +1,95 @@
+package io.quarkiverse.chappie.runtime.dev;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ChappieSharedServerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void attachToTheRegisteredServer() throws IOException {
+        ChappieSharedServer shared = new ChappieSharedServer(dir);
+        ProcessHandle server = ProcessHandle.current();
+        assertTrue(shared.attach("config").isEmpty());
+
+        Path output = shared.newOutput();
+        shared.register(server, "http://localhost:4315", "config", output);
+
+        Optional<ChappieSharedServer.Server> attached = shared.attach("config");
+        assertTrue(attached.isPresent());
+        assertEquals(server, attached.get().process());
+        assertEquals("http://localhost:4315", attached.get().baseUrl());
+        assertEquals(Optional.of("http://localhost:4315"), shared.baseUrl(server));
+    }
+
+    @Test
+    void otherConfigurationIsNotShared() throws IOException {
+        ChappieSharedServer shared = new ChappieSharedServer(dir);
+        shared.register(ProcessHandle.current(), "http://localhost:4315", "config", null);
+
+        assertTrue(shared.attach("other").isEmpty());
+    }
+
+    @Test
+    void baseUrlIsOnlyKnownForTheRegisteredServer() {
+        ChappieSharedServer shared = new ChappieSharedServer(dir);
+        shared.register(ProcessHandle.current(), "http://localhost:4315", "config", null);
+
+        ProcessHandle other = ProcessHandle.current().parent().orElseThrow();
+        assertTrue(shared.baseUrl(other).isEmpty());
+    }
+
+    @Test
+    void releaseRemovesTheRegistrationAndTheOutput() throws IOException {
+        ChappieSharedServer shared = new ChappieSharedServer(dir);
+        ProcessHandle server = ProcessHandle.current();
+        Path output = shared.newOutput();
+        shared.register(server, "http://localhost:4315", "config", output);
+
+        assertTrue(shared.release(server));
+        assertFalse(Files.exists(output));
+        assertTrue(shared.attach("config").isEmpty());
+        assertTrue(shared.baseUrl(server).isEmpty());
+    }
+
+    @Test
+    void usersThatAreGoneDoNotKeepTheServer() throws IOException {
+        ChappieSharedServer shared = new ChappieSharedServer(dir);
+        ProcessHandle server = ProcessHandle.current();
+        shared.register(server, "http://localhost:4315", "config", null);
+        // A pid that is not in use
+        Files.writeString(dir.resolve("refs-" + server.pid()).resolve(String.valueOf(Long.MAX_VALUE)), "");
+
+        assertTrue(shared.release(server));
+    }
+
+    @Test
+    void newOutputRemovesStaleOutputs() throws IOException {
+        ChappieSharedServer shared = new ChappieSharedServer(dir);
+        Path stale = Files.createFile(dir.resolve("server-stale.log"));
+        Files.setLastModifiedTime(stale, FileTime.from(Instant.now().minus(Duration.ofDays(8))));
+        Path recent = Files.createFile(dir.resolve("server-recent.log"));
+
+        Path output = shared.newOutput();
+
+        assertNotEquals(recent, output);
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(recent));
+        assertTrue(Files.exists(output));
+    }
+}
@@ -0,0 +1,134 @@
+package io.quarkiverse.chappie.runtime.dev;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.quarkus.builder.Version;
+
+class JsonObjectCreatorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void bodyIsTheSameAsTheTreeBuiltOne() throws Exception {
+        Map<String, String> variables = new LinkedHashMap<>();
+        variables.put("content", "String s = \"a \\\"quoted\\\" \\\\ path\";\n\tchar c = '\\u0001';\u0001");
+        variables.put("extension", "Grüße, 日本語, \uD83D\uDE00");
+        variables.put("empty", "");
+        List<Path> paths = List.of(Files.writeString(dir.resolve("Hello.java"), "class Hello {}"),
+                Files.writeString(dir.resolve("Hello World.java"), "class Grüße {}"));
+        String system = "You are \"Chappie\"\\n, a helper";
+        String user = "Fix {{content}} — ünïcödé";
+
+        JsonNode body = parse(JsonObjectCreator.getWorkspaceInputBody(system, user, variables, paths, null));
+
+        assertEquals(treeBuilt(system, user, variables, paths), body);
+        assertEquals(variables.get("content"), body.get("genericInput").get("variables").get("content").asText());
+    }
+
+    @Test
+    void emptyPathsAndVariables() throws Exception {
+        JsonNode body = parse(JsonObjectCreator.getWorkspaceInputBody("", "user", Map.of(), List.of(), null));
+
+        assertEquals(treeBuilt("", "user", Map.of(), List.of()), body);
+        assertTrue(body.get("paths").isArray());
+        assertTrue(body.get("genericInput").get("variables").isObject());
+    }
+
+    @Test
+    void absentVariablesAndTemplate() throws Exception {
+        JsonNode body = parse(JsonObjectCreator.getWorkspaceInputBody(null, "user", null, List.of(), null));
+
+        assertEquals(treeBuilt(null, "user", null, List.of()), body);
+        assertTrue(body.get("genericInput").get("variables").isNull());
+        assertTrue(body.get("genericInput").get("systemmessageTemplate").isNull());
+    }
+
+    @Test
+    void responseSchemaPromptIsAddedForAResponseType() throws Exception {
+        JsonNode body = parse(JsonObjectCreator.getWorkspaceInputBody("", "user", Map.of(), List.of(), Answer.class));
+
+        String prompt = body.get("responseSchemaPrompt").asText();
+        assertFalse(prompt.isBlank());
+        ObjectNode expected = treeBuilt("", "user", Map.of(), List.of());
+        expected.put("responseSchemaPrompt", prompt);
+        assertEquals(expected, body);
+        assertEquals(body, MAPPER.readTree(JsonObjectCreator.getWorkspaceInput("", "user", Map.of(), List.of(),
+                Answer.class)));
+    }
+
+    /**
+     * The payload the way it was built before it was streamed, as a tree
+     */
+    private static ObjectNode treeBuilt(String system, String user, Map<String, String> variables, List<Path> paths) {
+        ObjectNode genericInput = MAPPER.createObjectNode();
+        genericInput.put("programmingLanguage", "Java");
+        genericInput.put("programmingLanguageVersion", System.getProperty("java.version"));
+        genericInput.put("quarkusVersion", Version.getVersion());
+        genericInput.put("systemmessageTemplate", system);
+        genericInput.put("usermessageTemplate", user);
+        genericInput.set("variables", MAPPER.valueToTree(variables));
+
+        ObjectNode input = MAPPER.createObjectNode();
+        input.set("genericInput", genericInput);
+        input.setAll((ObjectNode) MAPPER.valueToTree(Map.of("paths", paths)));
+        return input;
+    }
+
+    private static JsonNode parse(HttpRequest.BodyPublisher body) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        body.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                byte[] bytes = new byte[item.remaining()];
+                item.get(bytes);
+                out.write(bytes, 0, bytes.length);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(null);
+            }
+        });
+        done.get(10, TimeUnit.SECONDS);
+        assertEquals(body.contentLength(), out.size());
+        return MAPPER.readTree(out.toByteArray());
+    }
+
+    record Answer(String path, String content) {
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+}